@@ -0,0 +1,45 @@
+package me.alex.dpl.annotationprocessor;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import java.util.function.Supplier;
+
+/**
+ * Recognizes deferred dependencies, which are injected as a {@link Supplier} of the dependency.
+ */
+final class DeferredTypes {
+
+    private DeferredTypes() {
+    }
+
+    /**
+     * Returns the type of the dependency a {@code Supplier<T>} or {@code Supplier<? extends T>} defers, or null if the
+     * type is no parameterized Supplier.
+     */
+    static TypeMirror getTarget(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        DeclaredType declared = (DeclaredType) type;
+        if (!((TypeElement) declared.asElement()).getQualifiedName().contentEquals(Supplier.class.getName())
+                || declared.getTypeArguments().size() != 1) {
+            return null;
+        }
+        TypeMirror argument = declared.getTypeArguments().get(0);
+        if (argument.getKind() == TypeKind.WILDCARD) {
+            return ((WildcardType) argument).getExtendsBound();
+        }
+        return argument;
+    }
+
+    /**
+     * Returns the type of the dependency, which is the type itself unless it is deferred.
+     */
+    static TypeMirror getDependencyType(TypeMirror type) {
+        TypeMirror target = getTarget(type);
+        return target != null ? target : type;
+    }
+}
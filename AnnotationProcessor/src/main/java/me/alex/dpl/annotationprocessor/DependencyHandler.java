@@ -7,51 +7,108 @@ public class DependencyHandler {
     public DependencyHandler() {
     }
 
+    /**
+     * Sorts the dependencies, so every dependency comes after all dependencies it depends on.
+     * Dependencies on classes that are not part of the list are ignored.
+     * Runs in O(V+E) using Kahn's algorithm.
+     *
+     * @param dependencies The dependencies to sort
+     * @return The sorted dependencies
+     * @throws IllegalArgumentException If the dependencies contain a cycle, with the full cycle path as message
+     */
     public List<Dependency> sortDependencies(List<Dependency> dependencies) {
-        List<Dependency> sorted = new ArrayList<>();
-        Set<String> visited = new HashSet<>();
-
-        Stack<Dependency> stack = new Stack<>();
+        Map<String, Integer> indices = new HashMap<>(dependencies.size() * 2);
+        List<Dependency> nodes = new ArrayList<>(dependencies.size());
         for (Dependency dependency : dependencies) {
-            if (!visited.contains(dependency.getKlass())) {
-                stack.push(dependency);
-                while (!stack.isEmpty()) {
-                    Dependency current = stack.peek();
-                    visited.add(current.getKlass());
-
-                    boolean allDependenciesVisited = true;
-                    for (String clazz : current.getDependencies()) {
-                        Dependency dep = findDependency(dependencies, clazz);
-                        if (dep == null) continue;
-                        if (dep.getDependencies().contains(current.getKlass())) {
-                            throw new IllegalArgumentException("Cyclic dependency found between " + current.getKlass() + " and " + dep.getKlass());
-                        }
-                        if (!visited.contains(clazz)) {
-                            stack.push(dep);
-                            allDependenciesVisited = false;
-                        }
-                    }
-
-                    if (allDependenciesVisited) {
-                        Dependency pop = stack.pop();
-                        if (!sorted.contains(pop)) {
-                            sorted.add(pop);
-                        }
-                    }
+            if (indices.putIfAbsent(dependency.getKlass(), nodes.size()) == null) {
+                nodes.add(dependency);
+            }
+        }
+
+        int size = nodes.size();
+        //edges[node] are the nodes the node depends on, dependents[node] the nodes depending on the node
+        int[][] edges = new int[size][];
+        int[] dependentCount = new int[size];
+        for (int node = 0; node < size; node++) {
+            edges[node] = nodes.get(node).dependencies.stream()
+                    .map(indices::get)
+                    .filter(Objects::nonNull)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            for (int edge : edges[node]) {
+                dependentCount[edge]++;
+            }
+        }
+
+        int[][] dependents = new int[size][];
+        for (int node = 0; node < size; node++) {
+            dependents[node] = new int[dependentCount[node]];
+        }
+        int[] inDegree = new int[size];
+        int[] filled = new int[size];
+        for (int node = 0; node < size; node++) {
+            inDegree[node] = edges[node].length;
+            for (int edge : edges[node]) {
+                dependents[edge][filled[edge]++] = node;
+            }
+        }
+
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int node = 0; node < size; node++) {
+            if (inDegree[node] == 0) {
+                queue[tail++] = node;
+            }
+        }
+
+        List<Dependency> sorted = new ArrayList<>(size);
+        while (head < tail) {
+            int node = queue[head++];
+            sorted.add(nodes.get(node));
+            for (int dependent : dependents[node]) {
+                if (--inDegree[dependent] == 0) {
+                    queue[tail++] = dependent;
                 }
             }
         }
 
+        if (sorted.size() != size) {
+            throw new IllegalArgumentException("Cyclic dependency found: " + String.join(" -> ", findCycle(nodes, edges, inDegree)));
+        }
         return sorted;
     }
 
-    private Dependency findDependency(List<Dependency> dependencies, String clazz) {
-        for (Dependency dependency : dependencies) {
-            if (dependency.getKlass().equals(clazz)) {
-                return dependency;
+    /**
+     * Finds a cycle among the nodes Kahn's algorithm could not sort. Every one of them depends on another unsorted
+     * node, so following those edges always ends in a cycle.
+     */
+    private List<String> findCycle(List<Dependency> nodes, int[][] edges, int[] inDegree) {
+        int start = 0;
+        while (inDegree[start] == 0) {
+            start++;
+        }
+
+        Map<Integer, Integer> positions = new HashMap<>();
+        List<Integer> path = new ArrayList<>();
+        int node = start;
+        while (!positions.containsKey(node)) {
+            positions.put(node, path.size());
+            path.add(node);
+            for (int edge : edges[node]) {
+                if (inDegree[edge] != 0) {
+                    node = edge;
+                    break;
+                }
             }
         }
-        return null;
+
+        List<String> cycle = new ArrayList<>();
+        for (int i = positions.get(node); i < path.size(); i++) {
+            cycle.add(nodes.get(path.get(i)).getKlass());
+        }
+        cycle.add(nodes.get(node).getKlass());
+        return cycle;
     }
 
     public static class Dependency {
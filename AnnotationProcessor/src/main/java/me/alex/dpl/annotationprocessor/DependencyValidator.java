@@ -0,0 +1,207 @@
+package me.alex.dpl.annotationprocessor;
+
+import me.alex.dpl.annotation.AutoClose;
+import me.alex.dpl.annotation.AutoLoadable;
+import me.alex.dpl.annotation.AutoRun;
+import me.alex.dpl.annotation.DependencyConstructor;
+import me.alex.dpl.annotation.Inject;
+import me.alex.dpl.annotation.Provided;
+import me.alex.dpl.annotation.Scoped;
+import me.alex.dpl.annotation.Warmup;
+import me.alex.dpl.index.DependencyIndex;
+import me.alex.dpl.index.IndexEntry;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validates {@link AutoLoadable} classes and the dependencies between them at compile time, so a broken dependency
+ * graph fails the build instead of the startup. All problems are reported as errors on the element causing them.
+ */
+public class DependencyValidator {
+    private final Messager messager;
+    private final Elements elementUtils;
+    private final Types typeUtils;
+
+    public DependencyValidator(Messager messager, Elements elementUtils, Types typeUtils) {
+        this.messager = messager;
+        this.elementUtils = elementUtils;
+        this.typeUtils = typeUtils;
+    }
+
+    /**
+     * Checks that the class can be created, injected and run by the DependencyManager.
+     *
+     * @param typeElement The class to check
+     * @return Whether the class is valid
+     */
+    public boolean validateClass(TypeElement typeElement) {
+        boolean valid = true;
+        if (typeElement.getModifiers().contains(Modifier.ABSTRACT)) {
+            error("Class " + typeElement.getQualifiedName() + " is abstract and can not be created.", typeElement);
+            valid = false;
+        }
+        if (typeElement.getNestingKind() == NestingKind.MEMBER && !typeElement.getModifiers().contains(Modifier.STATIC)) {
+            error("Class " + typeElement.getQualifiedName() + " is an inner class and can not be created. Make it static.", typeElement);
+            valid = false;
+        }
+
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(typeElement.getEnclosedElements()).stream()
+                .filter(constructor -> constructor.getAnnotation(DependencyConstructor.class) != null)
+                .toList();
+        if (constructors.size() != 1) {
+            error("Class " + typeElement.getQualifiedName() + " has " + constructors.size() + " constructors with the DependencyConstructor annotation. There should only be one.",
+                    constructors.isEmpty() ? typeElement : constructors.get(1));
+            valid = false;
+        } else {
+            ExecutableElement constructor = constructors.get(0);
+            if (!constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                error("The DependencyConstructor of class " + typeElement.getQualifiedName() + " has to be public.", constructor);
+                valid = false;
+            }
+            for (VariableElement parameter : constructor.getParameters()) {
+                valid &= checkSelfInjection(typeElement, parameter);
+            }
+        }
+
+        for (VariableElement field : ElementFilter.fieldsIn(typeElement.getEnclosedElements())) {
+            if (field.getAnnotation(Inject.class) != null) {
+                valid &= checkSelfInjection(typeElement, field);
+            }
+        }
+
+        for (ExecutableElement method : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+            if (method.getAnnotation(AutoRun.class) == null) {
+                continue;
+            }
+            if (!method.getParameters().isEmpty()) {
+                error("AutoRun method " + method.getSimpleName() + " in class " + typeElement.getQualifiedName() + " must not have parameters.", method);
+                valid = false;
+            }
+            if (method.getReturnType().getKind() != TypeKind.VOID) {
+                error("AutoRun method " + method.getSimpleName() + " in class " + typeElement.getQualifiedName() + " must not return a value.", method);
+                valid = false;
+            }
+        }
+
+        for (ExecutableElement method : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+            if (method.getAnnotation(AutoClose.class) != null && !method.getParameters().isEmpty()) {
+                error("AutoClose method " + method.getSimpleName() + " in class " + typeElement.getQualifiedName() + " must not have parameters.", method);
+                valid = false;
+            }
+            Warmup warmup = method.getAnnotation(Warmup.class);
+            if (warmup != null && !method.getParameters().isEmpty()) {
+                error("Warmup method " + method.getSimpleName() + " in class " + typeElement.getQualifiedName() + " must not have parameters.", method);
+                valid = false;
+            }
+            if (warmup != null && (warmup.iterations() < 1 || warmup.budgetMs() < 1)) {
+                error("Warmup method " + method.getSimpleName() + " in class " + typeElement.getQualifiedName() + " needs at least one iteration and a positive budget.", method);
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    private boolean checkSelfInjection(TypeElement typeElement, VariableElement variable) {
+        if (typeUtils.isSameType(typeUtils.erasure(variable.asType()), typeUtils.erasure(typeElement.asType()))) {
+            error("Class " + typeElement.getQualifiedName() + " depends on itself.", variable);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks that every constructor parameter and field of the entry is resolved to exactly one dependency of the
+     * index, or is provided from outside with {@link Provided}. Dependencies implemented by more than one class are
+     * reported as warnings, they can still be requested with {@link me.alex.dpl.annotation.Named}. Only
+     * {@link Scoped} classes may depend on scoped classes, a shared class has no scope to take them from.
+     *
+     * @param index       The index containing all dependencies
+     * @param entry       The entry to check
+     * @param typeElement The class the entry was created from
+     * @return The names of the provided types the entry depends on
+     */
+    public List<String> validateDependencies(DependencyIndex index, IndexEntry entry, TypeElement typeElement) {
+        List<String> provided = new ArrayList<>();
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(typeElement.getEnclosedElements()).stream()
+                .filter(constructor -> constructor.getAnnotation(DependencyConstructor.class) != null)
+                .toList();
+        List<? extends VariableElement> parameters = constructors.size() == 1 ? constructors.get(0).getParameters() : List.of();
+        for (int i = 0; i < entry.getConstructorParameters().size(); i++) {
+            Element element = i < parameters.size() ? parameters.get(i) : typeElement;
+            validateDependency(index, entry, entry.getConstructorParameters().get(i), entry.getParameterQualifiers().get(i), element, provided);
+        }
+
+        List<VariableElement> fields = ElementFilter.fieldsIn(typeElement.getEnclosedElements());
+        for (IndexEntry.InjectField field : entry.getInjectFields()) {
+            Element element = fields.stream()
+                    .filter(variable -> variable.getSimpleName().contentEquals(field.getName()))
+                    .findFirst()
+                    .<Element>map(variable -> variable)
+                    .orElse(typeElement);
+            validateDependency(index, entry, field.getType(), field.getQualifier(), element, provided);
+        }
+        return provided;
+    }
+
+    private void validateDependency(DependencyIndex index, IndexEntry entry, String type, String qualifier, Element element, List<String> provided) {
+        int resolved = index.resolve(type, qualifier);
+        if (resolved == DependencyIndex.AMBIGUOUS) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "Class " + entry.getClassName() + " depends on " + type
+                    + (qualifier.isEmpty() ? "" : " named " + qualifier) + ", which is implemented by more than one dependency. Use @Named to choose one.", element);
+        } else if (resolved >= 0) {
+            checkScoped(index.getEntries().get(resolved), entry, element);
+        } else if (resolved == DependencyIndex.NOT_FOUND) {
+            if (isProvided(element, index.resolve(type, "") == DependencyIndex.NOT_FOUND)) {
+                provided.add(type);
+                return;
+            }
+            error("Class " + entry.getClassName() + " depends on " + type + (qualifier.isEmpty() ? "" : " named " + qualifier)
+                    + ", which is neither @AutoLoadable nor @Provided.", element);
+        }
+    }
+
+    private void checkScoped(IndexEntry dependency, IndexEntry entry, Element element) {
+        if (isScoped(dependency.getClassName()) && !isScoped(entry.getClassName())) {
+            error("Class " + entry.getClassName() + " is not @Scoped and can not depend on the scoped class " + dependency.getClassName()
+                    + ". Make it @Scoped or depend on a shared class.", element);
+        }
+    }
+
+    private boolean isScoped(String className) {
+        TypeElement typeElement = elementUtils.getTypeElement(className.replace('$', '.'));
+        return typeElement != null && typeElement.getAnnotation(Scoped.class) != null;
+    }
+
+    /**
+     * Returns whether the dependency of the variable is created outside of this compilation: marked as
+     * {@link Provided}, or an {@link AutoLoadable} class missing from the index, which is indexed by its own module or
+     * already failed validation.
+     */
+    private boolean isProvided(Element element, boolean notIndexed) {
+        if (element.getAnnotation(Provided.class) != null) {
+            return true;
+        }
+        if (!(element instanceof VariableElement)) {
+            return false;
+        }
+        TypeMirror type = DeferredTypes.getDependencyType(element.asType());
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        Element typeElement = typeUtils.asElement(type);
+        return typeElement.getAnnotation(Provided.class) != null || (notIndexed && typeElement.getAnnotation(AutoLoadable.class) != null);
+    }
+
+    private void error(String message, Element element) {
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
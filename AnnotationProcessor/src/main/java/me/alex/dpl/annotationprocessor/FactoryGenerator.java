@@ -0,0 +1,303 @@
+package me.alex.dpl.annotationprocessor;
+
+import me.alex.dpl.Constants;
+import me.alex.dpl.annotation.AutoClose;
+import me.alex.dpl.annotation.AutoRun;
+import me.alex.dpl.annotation.DependencyConstructor;
+import me.alex.dpl.annotation.Inject;
+import me.alex.dpl.annotation.Named;
+import me.alex.dpl.annotation.Warmup;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a {@link me.alex.dpl.factory.DependencyFactory} for every {@link me.alex.dpl.annotation.AutoLoadable} class.
+ * Classes that cannot be reached from generated code (private classes, private constructors) are skipped and
+ * loaded reflectively at runtime.
+ */
+public class FactoryGenerator {
+    private final Filer filer;
+    private final Messager messager;
+    private final Elements elementUtils;
+    private final Types typeUtils;
+    private final Set<String> generated = new HashSet<>();
+
+    public FactoryGenerator(Filer filer, Messager messager, Elements elementUtils, Types typeUtils) {
+        this.filer = filer;
+        this.messager = messager;
+        this.elementUtils = elementUtils;
+        this.typeUtils = typeUtils;
+    }
+
+    public void generate(TypeElement typeElement) {
+        String binaryName = elementUtils.getBinaryName(typeElement).toString();
+        if (generated.contains(binaryName) || !canGenerate(typeElement)) {
+            return;
+        }
+
+        String factoryName = Constants.getFactoryName(binaryName);
+        try {
+            JavaFileObject file = filer.createSourceFile(factoryName, typeElement);
+            try (Writer writer = file.openWriter()) {
+                writer.write(createSource(typeElement, factoryName, getConstructors(typeElement).get(0), getInjectedFields(typeElement), getRunMethods(typeElement), getCloseMethods(typeElement)));
+            }
+            generated.add(binaryName);
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "Failed to generate factory for " + binaryName + ": " + e.getMessage(), typeElement);
+        }
+    }
+
+    /**
+     * Returns whether a factory can be generated for the class, which requires a reachable class and exactly one
+     * non-private {@link DependencyConstructor} without checked exceptions.
+     */
+    public boolean canGenerate(TypeElement typeElement) {
+        List<ExecutableElement> constructors = getConstructors(typeElement);
+        return isAccessible(typeElement) && constructors.size() == 1 && !constructors.get(0).getModifiers().contains(Modifier.PRIVATE)
+                && !throwsChecked(constructors.get(0));
+    }
+
+    /**
+     * Returns whether the factory of the class sets every {@link Inject} field and runs every {@link AutoRun},
+     * {@link Warmup} and {@link AutoClose} method, so the class needs no reflection at all.
+     */
+    public boolean isComplete(TypeElement typeElement) {
+        long fields = ElementFilter.fieldsIn(typeElement.getEnclosedElements()).stream()
+                .filter(field -> field.getAnnotation(Inject.class) != null)
+                .count();
+        long methods = ElementFilter.methodsIn(typeElement.getEnclosedElements()).stream()
+                .filter(this::isRunMethod)
+                .count();
+        return canGenerate(typeElement) && getInjectedFields(typeElement).size() == fields && getRunMethods(typeElement).size() == methods
+                && getCloseMethods(typeElement) != null;
+    }
+
+    private List<ExecutableElement> getConstructors(TypeElement typeElement) {
+        return ElementFilter.constructorsIn(typeElement.getEnclosedElements()).stream()
+                .filter(constructor -> constructor.getAnnotation(DependencyConstructor.class) != null)
+                .toList();
+    }
+
+    private List<VariableElement> getInjectedFields(TypeElement typeElement) {
+        return ElementFilter.fieldsIn(typeElement.getEnclosedElements()).stream()
+                .filter(field -> field.getAnnotation(Inject.class) != null)
+                .filter(field -> !field.getModifiers().contains(Modifier.PRIVATE))
+                .filter(field -> !field.getModifiers().contains(Modifier.FINAL))
+                .filter(field -> !field.getModifiers().contains(Modifier.STATIC))
+                .toList();
+    }
+
+    private boolean isRunMethod(ExecutableElement method) {
+        return method.getAnnotation(AutoRun.class) != null || method.getAnnotation(Warmup.class) != null;
+    }
+
+    /**
+     * Returns the {@link AutoRun} and {@link Warmup} methods the factory can run by name.
+     */
+    private List<ExecutableElement> getRunMethods(TypeElement typeElement) {
+        return ElementFilter.methodsIn(typeElement.getEnclosedElements()).stream()
+                .filter(this::isRunMethod)
+                .filter(method -> !method.getModifiers().contains(Modifier.PRIVATE))
+                .filter(method -> method.getParameters().isEmpty())
+                .filter(method -> !throwsChecked(method))
+                .toList();
+    }
+
+    /**
+     * Returns the {@link AutoClose} methods in declaration order, or null if one of them can not be called by the
+     * factory. Checked exceptions are allowed, they are thrown on by {@code close}.
+     */
+    private List<ExecutableElement> getCloseMethods(TypeElement typeElement) {
+        List<ExecutableElement> methods = ElementFilter.methodsIn(typeElement.getEnclosedElements()).stream()
+                .filter(method -> method.getAnnotation(AutoClose.class) != null)
+                .toList();
+        for (ExecutableElement method : methods) {
+            if (method.getModifiers().contains(Modifier.PRIVATE) || !method.getParameters().isEmpty()) {
+                return null;
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * Returns whether the generated code would have to catch an exception the executable declares.
+     */
+    private boolean throwsChecked(ExecutableElement executable) {
+        TypeMirror runtimeException = elementUtils.getTypeElement(RuntimeException.class.getName()).asType();
+        TypeMirror error = elementUtils.getTypeElement(Error.class.getName()).asType();
+        for (TypeMirror thrown : executable.getThrownTypes()) {
+            if (!typeUtils.isSubtype(thrown, runtimeException) && !typeUtils.isSubtype(thrown, error)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String createSource(TypeElement typeElement, String factoryName, ExecutableElement constructor, List<VariableElement> fields, List<ExecutableElement> methods, List<ExecutableElement> closeMethods) {
+        String packageName = elementUtils.getPackageOf(typeElement).getQualifiedName().toString();
+        String simpleName = factoryName.substring(factoryName.lastIndexOf('.') + 1);
+        String type = typeUtils.erasure(typeElement.asType()).toString();
+
+        List<String> parameters = new ArrayList<>();
+        for (VariableElement parameter : constructor.getParameters()) {
+            parameters.add(resolve(parameter));
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"").append(Processor.class.getName()).append("\")\n");
+        if (!typeElement.getTypeParameters().isEmpty()) {
+            //The factory creates the erased class, it does not know the type arguments
+            source.append("@SuppressWarnings(\"rawtypes\")\n");
+        }
+        source.append("public final class ").append(simpleName)
+                .append(" implements me.alex.dpl.factory.DependencyFactory<").append(type).append("> {\n");
+        source.append("    private static final java.util.Set<String> INJECTED_FIELDS = java.util.Set.of(")
+                .append(fields.stream().map(field -> "\"" + field.getSimpleName() + "\"").collect(Collectors.joining(", ")))
+                .append(");\n\n");
+
+        source.append("    @Override\n");
+        if (!typeElement.getTypeParameters().isEmpty() || constructor.getParameters().stream().anyMatch(this::isGeneric)) {
+            source.append("    @SuppressWarnings(\"unchecked\")\n");
+        }
+        source.append("    public ").append(type).append(" create(me.alex.dpl.factory.DependencyResolver resolver) {\n");
+        source.append("        return new ").append(type).append("(").append(String.join(", ", parameters)).append(");\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        if (!typeElement.getTypeParameters().isEmpty() || fields.stream().anyMatch(this::isGeneric)) {
+            source.append("    @SuppressWarnings(\"unchecked\")\n");
+        }
+        source.append("    public void inject(").append(type).append(" instance, me.alex.dpl.factory.DependencyResolver resolver) {\n");
+        for (VariableElement field : fields) {
+            source.append("        instance.").append(field.getSimpleName())
+                    .append(" = ").append(resolve(field)).append(";\n");
+        }
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public java.util.Set<String> getInjectedFields() {\n");
+        source.append("        return INJECTED_FIELDS;\n");
+        source.append("    }\n");
+
+        if (isComplete(typeElement)) {
+            source.append("\n    @Override\n");
+            source.append("    public boolean isComplete() {\n");
+            source.append("        return true;\n");
+            source.append("    }\n");
+        }
+
+        if (!methods.isEmpty()) {
+            source.append("\n    @Override\n");
+            source.append("    public boolean run(").append(type).append(" instance, String method) {\n");
+            source.append("        switch (method) {\n");
+            for (ExecutableElement method : methods) {
+                String target = method.getModifiers().contains(Modifier.STATIC) ? type : "instance";
+                source.append("            case ").append(elementUtils.getConstantExpression(method.getSimpleName().toString())).append(":\n");
+                source.append("                ").append(target).append(".").append(method.getSimpleName()).append("();\n");
+                source.append("                return true;\n");
+            }
+            source.append("            default:\n");
+            source.append("                return false;\n");
+            source.append("        }\n");
+            source.append("    }\n");
+        }
+
+        if (closeMethods != null && !closeMethods.isEmpty()) {
+            source.append("\n    @Override\n");
+            source.append("    public boolean close(").append(type).append(" instance) throws Exception {\n");
+            for (ExecutableElement method : closeMethods) {
+                String target = method.getModifiers().contains(Modifier.STATIC) ? type : "instance";
+                source.append("        ").append(target).append(".").append(method.getSimpleName()).append("();\n");
+            }
+            source.append("        return true;\n");
+            source.append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private String resolve(VariableElement variable) {
+        Named named = variable.getAnnotation(Named.class);
+        String qualifier = elementUtils.getConstantExpression(named == null ? "" : named.value());
+        TypeMirror target = DeferredTypes.getTarget(variable.asType());
+        if (target != null) {
+            String provider = "resolver.provider(" + typeUtils.erasure(target) + ".class, " + qualifier + ")";
+            //A Supplier of the erased type is cast to the declared Supplier of the generic type
+            return isGeneric(variable) ? cast(variable) + "(java.util.function.Supplier<?>) " + provider : provider;
+        }
+        String type = typeUtils.erasure(variable.asType()) + ".class";
+        String resolved = named == null ? "resolver.resolve(" + type + ")" : "resolver.resolve(" + type + ", " + qualifier + ")";
+        return isGeneric(variable) ? cast(variable) + resolved : resolved;
+    }
+
+    /**
+     * Returns whether the resolved value of the variable has to be cast from the erased type to the declared type.
+     */
+    private boolean isGeneric(VariableElement variable) {
+        //A deferred dependency resolves to a Supplier of the erased dependency type
+        TypeMirror type = Objects.requireNonNullElse(DeferredTypes.getTarget(variable.asType()), variable.asType());
+        return !typeUtils.isSameType(type, typeUtils.erasure(type));
+    }
+
+    /**
+     * Returns an unchecked cast to the declared type of the variable. Types using type variables of the class are not
+     * cast, the factory only sees the erased class.
+     */
+    private String cast(VariableElement variable) {
+        return containsTypeVariable(variable.asType()) ? "" : "(" + variable.asType() + ") ";
+    }
+
+    private boolean containsTypeVariable(TypeMirror type) {
+        return switch (type.getKind()) {
+            case TYPEVAR -> true;
+            case ARRAY -> containsTypeVariable(((ArrayType) type).getComponentType());
+            case WILDCARD -> {
+                WildcardType wildcard = (WildcardType) type;
+                yield (wildcard.getExtendsBound() != null && containsTypeVariable(wildcard.getExtendsBound()))
+                        || (wildcard.getSuperBound() != null && containsTypeVariable(wildcard.getSuperBound()));
+            }
+            case DECLARED -> ((DeclaredType) type).getTypeArguments().stream().anyMatch(this::containsTypeVariable);
+            default -> false;
+        };
+    }
+
+    private boolean isAccessible(TypeElement typeElement) {
+        if (typeElement.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        Element element = typeElement;
+        while (element.getKind().isClass() || element.getKind().isInterface()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            Element enclosing = element.getEnclosingElement();
+            if (enclosing.getKind() != ElementKind.PACKAGE && !element.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+            element = enclosing;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,264 @@
+package me.alex.dpl.annotationprocessor;
+
+import me.alex.dpl.Constants;
+import me.alex.dpl.annotation.DependencyConstructor;
+import me.alex.dpl.annotation.Inject;
+import me.alex.dpl.index.IndexEntry;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a {@link me.alex.dpl.factory.DependencyPlan} containing all classes in load order, with class literals and
+ * factories instead of names, so a DependencyManager can start without reading the index or using reflection.
+ * <p>
+ * Next to the plan, it writes GraalVM native-image reachability metadata for the classes that still need reflection.
+ */
+public class PlanGenerator {
+    //Keeps every generated method far below the 64KB bytecode limit
+    private static final int ENTRIES_PER_METHOD = 50;
+    private final Filer filer;
+    private final Messager messager;
+    private final Elements elementUtils;
+    private final Types typeUtils;
+    private final FactoryGenerator factoryGenerator;
+
+    public PlanGenerator(Filer filer, Messager messager, Elements elementUtils, Types typeUtils, FactoryGenerator factoryGenerator) {
+        this.filer = filer;
+        this.messager = messager;
+        this.elementUtils = elementUtils;
+        this.typeUtils = typeUtils;
+        this.factoryGenerator = factoryGenerator;
+    }
+
+    /**
+     * Generates the plan and its native-image metadata.
+     *
+     * @param planName The fully qualified name of the plan class
+     * @param entries       The entries in load order
+     * @param providedTypes The names of the provided types the entries depend on
+     * @param origins       The elements the entries were created from
+     */
+    public void generate(String planName, List<IndexEntry> entries, List<String> providedTypes, Map<String, TypeElement> origins) {
+        String packageName = planName.contains(".") ? planName.substring(0, planName.lastIndexOf('.')) : "";
+        String simpleName = planName.substring(planName.lastIndexOf('.') + 1);
+
+        List<String> sources = new ArrayList<>();
+        List<String> reflective = new ArrayList<>();
+        for (IndexEntry entry : entries) {
+            TypeElement typeElement = origins.get(entry.getClassName());
+            if (typeElement != null && isComplete(typeElement, packageName)) {
+                sources.add(createEntry(entry, typeElement));
+            } else {
+                sources.add("new me.alex.dpl.factory.PlanEntry(" + createIndexEntry(entry) + ")");
+                reflective.add(entry.getClassName());
+            }
+        }
+
+        try {
+            JavaFileObject file = filer.createSourceFile(planName, origins.values().toArray(Element[]::new));
+            try (Writer writer = file.openWriter()) {
+                writer.write(createSource(packageName, simpleName, sources, providedTypes));
+            }
+            writeReflectionConfig(planName, reflective, entries, origins);
+            messager.printMessage(Diagnostic.Kind.NOTE, "Generated dependency plan " + planName + " with " + reflective.size() + " reflectively loaded classes.");
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Failed to generate dependency plan " + planName + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isComplete(TypeElement typeElement, String packageName) {
+        if (!factoryGenerator.isComplete(typeElement) || !isAccessibleFrom(typeElement.asType(), packageName)) {
+            return false;
+        }
+        List<TypeMirror> types = new ArrayList<>(getParameterTypes(typeElement));
+        types.addAll(getFieldTypes(typeElement));
+        for (TypeMirror type : types) {
+            if (!isAccessibleFrom(type, packageName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<TypeMirror> getParameterTypes(TypeElement typeElement) {
+        List<TypeMirror> types = new ArrayList<>();
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(typeElement.getEnclosedElements())) {
+            if (constructor.getAnnotation(DependencyConstructor.class) != null) {
+                constructor.getParameters().forEach(parameter -> types.add(DeferredTypes.getDependencyType(parameter.asType())));
+            }
+        }
+        return types;
+    }
+
+    private List<TypeMirror> getFieldTypes(TypeElement typeElement) {
+        List<TypeMirror> types = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(typeElement.getEnclosedElements())) {
+            if (field.getAnnotation(Inject.class) != null) {
+                types.add(DeferredTypes.getDependencyType(field.asType()));
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Returns whether a class literal of the type compiles in the given package.
+     */
+    private boolean isAccessibleFrom(TypeMirror type, String packageName) {
+        TypeMirror erased = typeUtils.erasure(type);
+        if (erased.getKind() == TypeKind.ARRAY) {
+            return isAccessibleFrom(((ArrayType) erased).getComponentType(), packageName);
+        }
+        if (erased.getKind() != TypeKind.DECLARED) {
+            return erased.getKind().isPrimitive();
+        }
+
+        Element element = typeUtils.asElement(erased);
+        boolean samePackage = elementUtils.getPackageOf(element).getQualifiedName().contentEquals(packageName);
+        while (element.getKind().isClass() || element.getKind().isInterface()) {
+            Set<Modifier> modifiers = element.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || (!modifiers.contains(Modifier.PUBLIC) && !samePackage)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private String createEntry(IndexEntry entry, TypeElement typeElement) {
+        String type = typeUtils.erasure(typeElement.asType()).toString();
+        //The factory is a top level class in the package of the class
+        String factory = Constants.getFactoryName(entry.getClassName());
+
+        return "new me.alex.dpl.factory.PlanEntry(" + createIndexEntry(entry) + ",\n                "
+                + type + ".class, new " + factory + "(),\n                "
+                + classLiterals(getParameterTypes(typeElement)) + ", " + classLiterals(getFieldTypes(typeElement)) + ")";
+    }
+
+    private String classLiterals(List<TypeMirror> types) {
+        return types.stream()
+                .map(type -> typeUtils.erasure(type) + ".class")
+                .collect(Collectors.joining(", ", "java.util.List.of(", ")"));
+    }
+
+    private String createIndexEntry(IndexEntry entry) {
+        String fields = entry.getInjectFields().stream()
+                .map(field -> "new me.alex.dpl.index.IndexEntry.InjectField(" + constant(field.getName()) + ", " + constant(field.getType()) + ", " + constant(field.getQualifier()) + ", " + field.isDeferred() + ")")
+                .collect(Collectors.joining(", ", "java.util.List.of(", ")"));
+        String methods = entry.getAutoRunMethods().stream()
+                .map(method -> "new me.alex.dpl.index.IndexEntry.AutoRunMethod(" + constant(method.getName()) + ", " + method.getPriority() + ", " + method.isAsync() + ")")
+                .collect(Collectors.joining(", ", "java.util.List.of(", ")"));
+        String warmupMethods = entry.getWarmupMethods().stream()
+                .map(method -> "new me.alex.dpl.index.IndexEntry.WarmupMethod(" + constant(method.getName()) + ", " + method.getIterations() + ", " + method.getBudgetMs() + "L)")
+                .collect(Collectors.joining(", ", "java.util.List.of(", ")"));
+        return "new me.alex.dpl.index.IndexEntry(" + constant(entry.getClassName()) + ", " + constant(entry.getQualifier()) + ",\n                "
+                + constants(entry.getSupertypes()) + ", " + constants(entry.getConstructorParameters()) + ", " + constants(entry.getParameterQualifiers()) + ",\n                "
+                + booleans(entry.getParameterDeferred()) + ", " + fields + ", " + methods + ", " + constants(entry.getCloseMethods()) + ", " + warmupMethods + ")";
+    }
+
+    private String booleans(List<Boolean> values) {
+        return values.stream().map(String::valueOf).collect(Collectors.joining(", ", "java.util.List.of(", ")"));
+    }
+
+    private String constants(List<String> values) {
+        return values.stream().map(this::constant).collect(Collectors.joining(", ", "java.util.List.of(", ")"));
+    }
+
+    private String constant(String value) {
+        return elementUtils.getConstantExpression(value);
+    }
+
+    private String createSource(String packageName, String simpleName, List<String> entries, List<String> providedTypes) {
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"").append(Processor.class.getName()).append("\")\n");
+        source.append("public final class ").append(simpleName).append(" implements me.alex.dpl.factory.DependencyPlan {\n");
+        source.append("    private static final java.util.List<me.alex.dpl.factory.PlanEntry> ENTRIES = createEntries();\n\n");
+
+        source.append("    private static java.util.List<me.alex.dpl.factory.PlanEntry> createEntries() {\n");
+        source.append("        java.util.List<me.alex.dpl.factory.PlanEntry> entries = new java.util.ArrayList<>(").append(entries.size()).append(");\n");
+        int parts = (entries.size() + ENTRIES_PER_METHOD - 1) / ENTRIES_PER_METHOD;
+        for (int part = 0; part < parts; part++) {
+            source.append("        addEntries").append(part).append("(entries);\n");
+        }
+        source.append("        return java.util.List.copyOf(entries);\n");
+        source.append("    }\n");
+
+        for (int part = 0; part < parts; part++) {
+            source.append("\n    private static void addEntries").append(part).append("(java.util.List<me.alex.dpl.factory.PlanEntry> entries) {\n");
+            for (String entry : entries.subList(part * ENTRIES_PER_METHOD, Math.min(entries.size(), (part + 1) * ENTRIES_PER_METHOD))) {
+                source.append("        entries.add(").append(entry).append(");\n");
+            }
+            source.append("    }\n");
+        }
+
+        source.append("\n    @Override\n");
+        source.append("    public java.util.List<me.alex.dpl.factory.PlanEntry> getEntries() {\n");
+        source.append("        return ENTRIES;\n");
+        source.append("    }\n");
+
+        if (!providedTypes.isEmpty()) {
+            source.append("\n    @Override\n");
+            source.append("    public java.util.List<String> getProvidedTypes() {\n");
+            source.append("        return ").append(constants(providedTypes)).append(";\n");
+            source.append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * Registers the classes that are still loaded reflectively, their generated factories and their constructor
+     * parameter types for GraalVM native-image.
+     */
+    private void writeReflectionConfig(String planName, List<String> reflective, List<IndexEntry> entries, Map<String, TypeElement> origins) throws IOException {
+        Set<String> classes = new LinkedHashSet<>(reflective);
+        Set<String> types = new LinkedHashSet<>();
+        Set<String> factories = new LinkedHashSet<>();
+        for (IndexEntry entry : entries) {
+            if (!classes.contains(entry.getClassName())) {
+                continue;
+            }
+            TypeElement typeElement = origins.get(entry.getClassName());
+            if (typeElement != null && factoryGenerator.canGenerate(typeElement)) {
+                factories.add(Constants.getFactoryName(entry.getClassName()));
+            }
+            types.addAll(entry.getConstructorParameters());
+        }
+
+        StringJoiner config = new StringJoiner(",\n", "[\n", "\n]\n");
+        for (String className : classes) {
+            config.add("  {\"name\": " + constant(className) + ", \"allDeclaredConstructors\": true, \"allPublicConstructors\": true, "
+                    + "\"allDeclaredFields\": true, \"allDeclaredMethods\": true}");
+        }
+        for (String factory : factories) {
+            config.add("  {\"name\": " + constant(factory) + ", \"allPublicConstructors\": true}");
+        }
+        for (String type : types) {
+            if (!classes.contains(type) && type.contains(".")) {
+                config.add("  {\"name\": " + constant(type) + "}");
+            }
+        }
+
+        String resource = "META-INF/native-image/me.alex.dpl/" + planName + "/reflect-config.json";
+        try (Writer writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "", resource, origins.values().toArray(Element[]::new)).openWriter()) {
+            writer.write(reflective.isEmpty() ? "[]\n" : config.toString());
+        }
+    }
+}
@@ -1,48 +1,65 @@
 package me.alex.dpl.annotationprocessor;
 
 import me.alex.dpl.Constants;
+import me.alex.dpl.annotation.AutoClose;
 import me.alex.dpl.annotation.AutoLoadable;
+import me.alex.dpl.annotation.AutoRun;
 import me.alex.dpl.annotation.DependencyConstructor;
 import me.alex.dpl.annotation.Inject;
+import me.alex.dpl.annotation.Named;
+import me.alex.dpl.annotation.Warmup;
+import me.alex.dpl.index.DependencyIndex;
+import me.alex.dpl.index.IndexEntry;
 
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
-import javax.lang.model.element.ElementKind;
-import javax.lang.model.element.ExecutableElement;
-import javax.lang.model.element.TypeElement;
-import javax.lang.model.element.VariableElement;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
 import javax.tools.FileObject;
 import javax.tools.StandardLocation;
 import java.io.*;
 import java.lang.annotation.Annotation;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 @SupportedAnnotationTypes("me.alex.dpl.annotation.AutoLoadable")
+@SupportedOptions(Processor.PLAN_OPTION)
 @SupportedSourceVersion(SourceVersion.RELEASE_17)
 public class Processor extends AbstractProcessor {
-    private final ArrayList<String> foundAnnotations = new ArrayList<>();
+    /**
+     * The option with the fully qualified name of the {@link me.alex.dpl.factory.DependencyPlan} to generate.
+     */
+    public static final String PLAN_OPTION = "dpl.plan";
     private final Class<? extends Annotation> annotationClass = AutoLoadable.class;
     private final Class<? extends Annotation> dependencyConstrutor = DependencyConstructor.class;
     private final Class<? extends Annotation> injectClass = Inject.class;
-    private final Map<String, List<String>> dependencies = new ConcurrentHashMap<>();
+    private final Map<String, IndexEntry> entries = new ConcurrentHashMap<>();
+    //The elements every entry was created from, used as originating elements for incremental compilation
+    private final Map<String, TypeElement> origins = new ConcurrentHashMap<>();
     private Messager messager;
     private Filer filer;
     private DependencyHandler dependencyHandler;
+    private FactoryGenerator factoryGenerator;
+    private DependencyValidator validator;
+    private PlanGenerator planGenerator;
+    private String planName;
+    private boolean planWritten;
+    private DependencyIndex sortedIndex;
     private Types typeUtils;
-
-    private static void readOldIndexFile(Set<String> entries, Reader reader) throws IOException {
-        try (BufferedReader bufferedReader = new BufferedReader(reader)) {
-            String line = bufferedReader.readLine();
-            while (line != null) {
-                entries.add(line);
-                line = bufferedReader.readLine();
-            }
-        }
-    }
+    private Elements elementUtils;
+    private FileObject oldIndexFile;
+    private byte[] oldIndex;
+    private boolean oldIndexMerged;
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
@@ -51,152 +68,314 @@ public class Processor extends AbstractProcessor {
         messager = processingEnv.getMessager();
         dependencyHandler = new DependencyHandler();
         typeUtils = processingEnv.getTypeUtils();
+        elementUtils = processingEnv.getElementUtils();
+        factoryGenerator = new FactoryGenerator(filer, messager, elementUtils, typeUtils);
+        validator = new DependencyValidator(messager, elementUtils, typeUtils);
+        planGenerator = new PlanGenerator(filer, messager, elementUtils, typeUtils, factoryGenerator);
+        planName = processingEnv.getOptions().get(PLAN_OPTION);
         messager.printMessage(Diagnostic.Kind.NOTE, "Starting annotation processing...");
 
     }
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        //The index is written once in the last round, after every round contributed its classes
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
         if (annotations.isEmpty()) {
+            //The first round without new dependencies has all classes and factories, so the plan can still be compiled
+            if (planName != null && !planWritten) {
+                writePlan();
+            }
             return false;
         }
 
         roundEnv.getElementsAnnotatedWith(annotationClass).forEach(element -> {
             if (element.getKind() == ElementKind.CLASS) {
                 if (element instanceof TypeElement typeElement) {
-                    String className = typeElement.getQualifiedName().toString();
-                    if (!dependencies.containsKey(className)) {
-                        dependencies.put(className, new ArrayList<>());
+                    if (planWritten) {
+                        messager.printMessage(Diagnostic.Kind.ERROR, "Class " + typeElement.getQualifiedName() + " was generated after the dependency plan " + planName + " and is missing from it.", typeElement);
+                    }
+                    //Invalid classes already failed the build, a factory for them would only add more errors
+                    if (!validator.validateClass(typeElement)) {
+                        return;
                     }
+                    IndexEntry entry = createEntry(typeElement);
+                    entries.put(entry.getClassName(), entry);
+                    origins.put(entry.getClassName(), typeElement);
+                    factoryGenerator.generate(typeElement);
                 }
+            } else {
+                messager.printMessage(Diagnostic.Kind.ERROR, "Only classes can be @AutoLoadable.", element);
             }
         });
 
-        roundEnv.getElementsAnnotatedWith(dependencyConstrutor).forEach(element -> {
-            if (element.getKind() == ElementKind.CONSTRUCTOR) {
-                ExecutableElement constructor = (ExecutableElement) element;
-                TypeElement enclosingElement = (TypeElement) constructor.getEnclosingElement();
-                String className = enclosingElement.getQualifiedName().toString();
-
-                dependencies.computeIfPresent(className, (key, value) -> {
-                    for (VariableElement parameter : constructor.getParameters()) {
-                        TypeElement typeElement = (TypeElement) typeUtils.asElement(parameter.asType());
-                        if (typeElement != null) {
-                            value.add(typeElement.getQualifiedName().toString());
-                        }
-                    }
-                    return value;
-                });
-            }
-        });
+        return false;
+    }
+
+    private void writePlan() {
+        planWritten = true;
+        sortedIndex = sortEntries();
+        if (sortedIndex != null) {
+            planGenerator.generate(planName, sortedIndex.getEntries(), sortedIndex.getProvidedTypes(), origins);
+        }
+    }
 
-        roundEnv.getElementsAnnotatedWith(injectClass).forEach(element -> {
-            if (element.getKind() == ElementKind.FIELD) {
-                VariableElement field = (VariableElement) element;
-                TypeElement enclosingElement = (TypeElement) field.getEnclosingElement();
-                String className = enclosingElement.getQualifiedName().toString();
+    private void writeIndex() {
+        //Entries added after the plan already failed the build, so the plan and the index are the same
+        DependencyIndex sorted = planWritten ? sortedIndex : sortEntries();
+        if (sorted == null) {
+            return;
+        }
 
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            sorted.write(outputStream);
+            byte[] index = outputStream.toByteArray();
 
-                dependencies.computeIfPresent(className, (key, value) -> {
-                    TypeElement typeElement = (TypeElement) typeUtils.asElement(field.asType());
-                    if (typeElement != null) {
-                        value.add(typeElement.getQualifiedName().toString());
-                    }
-                    return value;
-                });
+            //Keep the old file untouched if nothing changed, so later build steps stay up to date
+            if (Arrays.equals(oldIndex, index)) {
+                messager.printMessage(Diagnostic.Kind.NOTE, "Dependency index file is up to date.");
+                return;
             }
-        });
+            writeIndexFile(index, Constants.INDEX_FILE, origins.values().toArray(Element[]::new));
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Failed to write dependency index file: " + e.getMessage());
+        }
+    }
 
+    /**
+     * Merges the old index, validates all entries and sorts them in load order. {@link me.alex.dpl.annotation.Provided}
+     * types are part of the graph, but not of the entries. Returns null if the dependencies contain a cycle.
+     */
+    private DependencyIndex sortEntries() {
+        if (!oldIndexMerged) {
+            oldIndexMerged = true;
+            oldIndex = readOldIndexFile(Constants.INDEX_FILE);
+            if (oldIndex != null) {
+                mergeOldIndex(oldIndex);
+            }
+        }
 
+        //resolve dependencies on supertypes and qualifiers to the classes implementing them
+        List<IndexEntry> unsortedEntries = new ArrayList<>(entries.values());
+        DependencyIndex unsorted = new DependencyIndex(unsortedEntries);
         List<DependencyHandler.Dependency> classes = new ArrayList<>();
-
-        for (Map.Entry<String, List<String>> dep : dependencies.entrySet()) {
-            String className = dep.getKey();
-            List<String> dependencies = dep.getValue();
-            classes.add(new DependencyHandler.Dependency(className, dependencies));
+        Set<String> providedTypes = new LinkedHashSet<>();
+        for (int i = 0; i < unsortedEntries.size(); i++) {
+            IndexEntry entry = unsortedEntries.get(i);
+            List<String> provided = validator.validateDependencies(unsorted, entry, origins.get(entry.getClassName()));
+            List<String> dependencies = new ArrayList<>();
+            for (int edge : unsorted.getEdges(i)) {
+                dependencies.add(unsortedEntries.get(edge).getClassName());
+            }
+            dependencies.addAll(provided);
+            providedTypes.addAll(provided);
+            classes.add(new DependencyHandler.Dependency(entry.getClassName(), dependencies));
+        }
+        for (String type : providedTypes) {
+            classes.add(new DependencyHandler.Dependency(type, List.of()));
         }
 
-        classes = dependencyHandler.sortDependencies(classes);
+        try {
+            classes = dependencyHandler.sortDependencies(classes);
+        } catch (IllegalArgumentException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+            return null;
+        }
 
-        Set<String> sortedClasses = new LinkedHashSet<>();
+        List<IndexEntry> sortedEntries = new ArrayList<>();
         for (DependencyHandler.Dependency dep : classes) {
-            sortedClasses.add(dep.getKlass());
+            IndexEntry entry = entries.get(dep.getKlass());
+            if (entry == null) {
+                messager.printMessage(Diagnostic.Kind.NOTE, "Found provided " + dep.getKlass());
+                continue;
+            }
+            sortedEntries.add(entry);
 
             messager.printMessage(Diagnostic.Kind.NOTE, "Found " + dep.getKlass() + " with dependencies " + Arrays.toString(dep.getDependencies().toArray()));
         }
-        messager.printMessage(Diagnostic.Kind.NOTE, "Found " + Arrays.toString(sortedClasses.toArray()));
+        messager.printMessage(Diagnostic.Kind.NOTE, "Found " + Arrays.toString(sortedEntries.stream().map(IndexEntry::getClassName).toArray()));
+        return new DependencyIndex(sortedEntries, new ArrayList<>(providedTypes));
+    }
 
+    /**
+     * Adds the entries of an index written by an earlier, partial compilation. Entries of classes that no longer exist
+     * or are no longer {@link AutoLoadable} are dropped, so the index never contains stale classes.
+     */
+    private void mergeOldIndex(byte[] oldIndex) {
+        List<IndexEntry> oldEntries;
         try {
-            writeSimpleNameIndexFile(sortedClasses, Constants.ANNOTATION_STORAGE_FILE);
+            oldEntries = DependencyIndex.read(ByteBuffer.wrap(oldIndex)).getEntries();
         } catch (IOException e) {
-            messager.printMessage(Diagnostic.Kind.ERROR, "Failed to write annotation storage file: " + e.getMessage());
+            //Written by another version, everything is processed again anyway
+            return;
         }
 
-        return false;
+        for (IndexEntry entry : oldEntries) {
+            if (entries.containsKey(entry.getClassName())) {
+                continue;
+            }
+            TypeElement typeElement = elementUtils.getTypeElement(entry.getClassName().replace('$', '.'));
+            if (typeElement == null || typeElement.getAnnotation(annotationClass) == null) {
+                messager.printMessage(Diagnostic.Kind.NOTE, "Removed stale class " + entry.getClassName() + " from the dependency index.");
+                continue;
+            }
+            entries.put(entry.getClassName(), entry);
+            origins.put(entry.getClassName(), typeElement);
+        }
     }
 
-    private void writeSimpleNameIndexFile(Set<String> elementList, String resourceName)
-            throws IOException {
-        FileObject file = readOldIndexFile(elementList, resourceName);
-        if (file != null) {
-            /*
-             * Ugly hack for Eclipse JDT incremental compilation.
-             * Eclipse JDT can't createResource() after successful getResource().
-             * But we can file.openWriter().
-             */
-            try {
-                writeIndexFile(elementList, resourceName, file);
-                return;
-            } catch (IllegalStateException e) {
-                // Thrown by HotSpot Java Compiler
+    private IndexEntry createEntry(TypeElement typeElement) {
+        String className = elementUtils.getBinaryName(typeElement).toString();
+
+        //validated to be exactly one
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(typeElement.getEnclosedElements()).stream()
+                .filter(constructor -> constructor.getAnnotation(dependencyConstrutor) != null)
+                .toList();
+
+        List<String> parameters = new ArrayList<>();
+        List<String> parameterQualifiers = new ArrayList<>();
+        List<Boolean> parameterDeferred = new ArrayList<>();
+        for (VariableElement parameter : constructors.get(0).getParameters()) {
+            parameters.add(getTypeName(DeferredTypes.getDependencyType(parameter.asType())));
+            parameterQualifiers.add(getQualifier(parameter));
+            parameterDeferred.add(DeferredTypes.getTarget(parameter.asType()) != null);
+        }
+
+        List<IndexEntry.InjectField> fields = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(typeElement.getEnclosedElements())) {
+            if (field.getAnnotation(injectClass) != null) {
+                fields.add(new IndexEntry.InjectField(field.getSimpleName().toString(), getTypeName(DeferredTypes.getDependencyType(field.asType())),
+                        getQualifier(field), DeferredTypes.getTarget(field.asType()) != null));
+            }
+        }
+
+        List<IndexEntry.AutoRunMethod> methods = new ArrayList<>();
+        List<String> closeMethods = new ArrayList<>();
+        List<IndexEntry.WarmupMethod> warmupMethods = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+            AutoRun autoRun = method.getAnnotation(AutoRun.class);
+            if (autoRun != null) {
+                methods.add(new IndexEntry.AutoRunMethod(method.getSimpleName().toString(), autoRun.priority(), autoRun.async()));
+            }
+            if (method.getAnnotation(AutoClose.class) != null) {
+                closeMethods.add(method.getSimpleName().toString());
+            }
+            Warmup warmup = method.getAnnotation(Warmup.class);
+            if (warmup != null) {
+                warmupMethods.add(new IndexEntry.WarmupMethod(method.getSimpleName().toString(), warmup.iterations(), warmup.budgetMs()));
+            }
+        }
+        //sort the methods by priority, so the runtime does not have to
+        methods.sort(Comparator.comparingInt(IndexEntry.AutoRunMethod::getPriority));
+
+        Set<String> supertypes = new LinkedHashSet<>();
+        collectSupertypes(typeElement.asType(), supertypes);
+        return new IndexEntry(className, getQualifier(typeElement), new ArrayList<>(supertypes), parameters, parameterQualifiers, parameterDeferred, fields, methods, closeMethods, warmupMethods);
+    }
+
+    private String getQualifier(Element element) {
+        Named named = element.getAnnotation(Named.class);
+        return named == null ? "" : named.value();
+    }
+
+    /**
+     * Collects all superclasses and interfaces of the given type, excluding {@link Object}.
+     */
+    private void collectSupertypes(TypeMirror type, Set<String> supertypes) {
+        for (TypeMirror supertype : typeUtils.directSupertypes(type)) {
+            if (supertype.getKind() != TypeKind.DECLARED) {
+                continue;
+            }
+            String name = getTypeName(supertype);
+            if (!name.equals(Object.class.getName()) && supertypes.add(name)) {
+                collectSupertypes(supertype, supertypes);
             }
         }
-        writeIndexFile(elementList, resourceName, null);
     }
 
-    private FileObject readOldIndexFile(Set<String> entries, String resourceName) throws IOException {
-        Reader reader = null;
+    /**
+     * Returns the name of the given type in the format of {@link Class#getName()}.
+     */
+    private String getTypeName(TypeMirror type) {
+        TypeMirror erased = typeUtils.erasure(type);
+        return switch (erased.getKind()) {
+            case DECLARED -> elementUtils.getBinaryName((TypeElement) typeUtils.asElement(erased)).toString();
+            case ARRAY -> "[" + getDescriptor(((ArrayType) erased).getComponentType());
+            default -> erased.toString();
+        };
+    }
+
+    private String getDescriptor(TypeMirror type) {
+        TypeMirror erased = typeUtils.erasure(type);
+        return switch (erased.getKind()) {
+            case BOOLEAN -> "Z";
+            case BYTE -> "B";
+            case CHAR -> "C";
+            case SHORT -> "S";
+            case INT -> "I";
+            case LONG -> "J";
+            case FLOAT -> "F";
+            case DOUBLE -> "D";
+            case ARRAY -> "[" + getDescriptor(((ArrayType) erased).getComponentType());
+            default -> "L" + getTypeName(erased) + ";";
+        };
+    }
+
+    private byte[] readOldIndexFile(String resourceName) {
         try {
             final FileObject resource = filer.getResource(StandardLocation.CLASS_OUTPUT, "", resourceName);
-            reader = resource.openReader(true);
-            readOldIndexFile(entries, reader);
-            return resource;
-        } catch (FileNotFoundException e) {
+            try (InputStream inputStream = resource.openInputStream()) {
+                byte[] bytes = inputStream.readAllBytes();
+                oldIndexFile = resource;
+                return bytes;
+            }
+        } catch (FileNotFoundException | NoSuchFileException e) {
             /*
              * Ugly hack for Intellij IDEA incremental compilation.
              * The problem is that it throws FileNotFoundException on the files, if they were not created during the
              * current session of compilation.
              */
             final String realPath = e.getMessage();
-            if (new File(realPath).exists()) {
-                try (Reader fileReader = new FileReader(realPath, StandardCharsets.UTF_8)) {
-                    readOldIndexFile(entries, fileReader);
+            if (realPath != null && new File(realPath).exists()) {
+                try {
+                    return Files.readAllBytes(Path.of(realPath));
+                } catch (IOException ex) {
+                    messager.printMessage(Diagnostic.Kind.WARNING, "Ignoring unreadable dependency index file: " + ex.getMessage());
                 }
             }
         } catch (IOException e) {
             // Thrown by Eclipse JDT when not found
-        } catch (UnsupportedOperationException e) {
-            // Java6 does not support reading old index files
-        } finally {
-            if (reader != null) {
-                reader.close();
-            }
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // Not supported by every compiler
         }
         return null;
     }
 
-    private void writeIndexFile(Set<String> entries, String resourceName, FileObject overrideFile) throws IOException {
-        FileObject file = overrideFile;
-        if (file == null) {
-            file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", resourceName);
-        }
-        try (Writer writer = file.openWriter()) {
-            for (String entry : entries) {
-                writer.write(entry);
-                writer.write("\n");
+    private void writeIndexFile(byte[] index, String resourceName, Element... originatingElements) throws IOException {
+        if (oldIndexFile != null) {
+            /*
+             * Ugly hack for Eclipse JDT incremental compilation.
+             * Eclipse JDT can't createResource() after successful getResource().
+             * But we can file.openOutputStream().
+             */
+            try {
+                writeIndexFile(index, oldIndexFile);
+                return;
+            } catch (IllegalStateException e) {
+                // Thrown by HotSpot Java Compiler
             }
-            writer.flush();
-            messager.printMessage(Diagnostic.Kind.NOTE, "Wrote annotation storage file: " + file.toUri());
+        }
+        writeIndexFile(index, filer.createResource(StandardLocation.CLASS_OUTPUT, "", resourceName, originatingElements));
+    }
+
+    private void writeIndexFile(byte[] index, FileObject file) throws IOException {
+        try (OutputStream outputStream = file.openOutputStream()) {
+            outputStream.write(index);
+            messager.printMessage(Diagnostic.Kind.NOTE, "Wrote dependency index file: " + file.toUri());
         }
     }
 }
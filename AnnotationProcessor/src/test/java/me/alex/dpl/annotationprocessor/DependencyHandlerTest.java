@@ -0,0 +1,98 @@
+package me.alex.dpl.annotationprocessor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyHandlerTest {
+    private final DependencyHandler handler = new DependencyHandler();
+
+    @Test
+    void sortsDependenciesBeforeTheirDependents() {
+        List<DependencyHandler.Dependency> sorted = handler.sortDependencies(List.of(
+                dependency("Top", "Left", "Right"),
+                dependency("Left", "Root"),
+                dependency("Right", "Root", "java.lang.String"),
+                dependency("Root")));
+
+        assertEquals(4, sorted.size());
+        assertBeforeDependents(sorted);
+        assertEquals("Root", sorted.get(0).getKlass());
+        assertEquals("Top", sorted.get(3).getKlass());
+    }
+
+    @Test
+    void keepsDuplicateClassesOnce() {
+        List<DependencyHandler.Dependency> sorted = handler.sortDependencies(List.of(
+                dependency("Client", "Service"),
+                dependency("Service"),
+                dependency("Service")));
+
+        assertEquals(List.of("Service", "Client"), sorted.stream().map(DependencyHandler.Dependency::getKlass).toList());
+    }
+
+    @Test
+    void reportsTheFullCyclePath() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> handler.sortDependencies(List.of(
+                dependency("Client", "A"),
+                dependency("A", "B"),
+                dependency("B", "C"),
+                dependency("C", "A"),
+                dependency("Free"))));
+
+        assertEquals("Cyclic dependency found: A -> B -> C -> A", e.getMessage());
+    }
+
+    @Test
+    void reportsSelfCycles() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> handler.sortDependencies(List.of(
+                dependency("Self", "Self"))));
+
+        assertEquals("Cyclic dependency found: Self -> Self", e.getMessage());
+    }
+
+    @Test
+    void sortsLargeGraphsInLinearTime() {
+        //A chain and a fan of 100000 classes each, in reverse load order, which took minutes with a quadratic sort
+        int size = 100_000;
+        List<DependencyHandler.Dependency> dependencies = new ArrayList<>();
+        for (int i = size - 1; i > 0; i--) {
+            dependencies.add(dependency("Chain" + i, "Chain" + (i - 1)));
+            dependencies.add(dependency("Fan" + i, "Fan0"));
+        }
+        dependencies.add(dependency("Chain0"));
+        dependencies.add(dependency("Fan0"));
+
+        long start = System.nanoTime();
+        List<DependencyHandler.Dependency> sorted = handler.sortDependencies(dependencies);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(2 * size, sorted.size());
+        assertBeforeDependents(sorted);
+        assertTrue(millis < 5_000, "Sorting took " + millis + "ms");
+    }
+
+    private static void assertBeforeDependents(List<DependencyHandler.Dependency> sorted) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            positions.put(sorted.get(i).getKlass(), i);
+        }
+        for (DependencyHandler.Dependency dependency : sorted) {
+            for (String needed : dependency.getDependencies()) {
+                Integer position = positions.get(needed);
+                if (position != null) {
+                    assertTrue(position < positions.get(dependency.getKlass()), needed + " is sorted after " + dependency.getKlass());
+                }
+            }
+        }
+    }
+
+    private static DependencyHandler.Dependency dependency(String className, String... dependencies) {
+        return new DependencyHandler.Dependency(className, List.of(dependencies));
+    }
+}
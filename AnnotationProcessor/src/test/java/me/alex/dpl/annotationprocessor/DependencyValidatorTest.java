@@ -0,0 +1,340 @@
+package me.alex.dpl.annotationprocessor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyValidatorTest {
+    private static final String SESSION = """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @Scoped
+            @AutoLoadable
+            public class Session implements Context {
+                @DependencyConstructor
+                public Session() {
+                }
+            }
+            """;
+    private static final String CONTEXT = """
+            package test;
+
+            public interface Context {
+            }
+            """;
+
+    @Test
+    void scopedClassesMayDependOnScopedAndSharedClasses() throws Exception {
+        List<String> messages = TestSources.compile(Map.of("test.Session", SESSION, "test.Context", CONTEXT, "test.Service", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Service {
+                    @DependencyConstructor
+                    public Service() {
+                    }
+                }
+                """, "test.Handler", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @Scoped
+                @AutoLoadable
+                public class Handler {
+                    @Inject
+                    Context context;
+
+                    @DependencyConstructor
+                    public Handler(Session session, Service service) {
+                    }
+                }
+                """));
+        assertEquals(List.of(), messages);
+    }
+
+    @Test
+    void sharedClassMustNotDependOnScopedParameter() throws Exception {
+        List<String> messages = TestSources.compile(Map.of("test.Session", SESSION, "test.Context", CONTEXT, "test.Service", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Service {
+                    @DependencyConstructor
+                    public Service(
+                            Session session) {
+                    }
+                }
+                """));
+        assertEquals(1, messages.size(), messages.toString());
+        assertTrue(messages.get(0).startsWith("ERROR Session session) {: Class test.Service is not @Scoped and can not depend on the scoped class test.Session."), messages.get(0));
+    }
+
+    @Test
+    void sharedClassMustNotDependOnScopedField() throws Exception {
+        List<String> messages = TestSources.compile(Map.of("test.Session", SESSION, "test.Context", CONTEXT, "test.Service", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+                import java.util.function.Supplier;
+
+                @AutoLoadable
+                public class Service {
+                    @Inject
+                    Context context;
+                    @Inject
+                    Supplier<Session> session;
+
+                    @DependencyConstructor
+                    public Service() {
+                    }
+                }
+                """));
+        assertEquals(2, messages.size(), messages.toString());
+        assertTrue(messages.get(0).startsWith("ERROR Context context;: Class test.Service is not @Scoped and can not depend on the scoped class test.Session."), messages.get(0));
+        assertTrue(messages.get(1).startsWith("ERROR Supplier<Session> session;: Class test.Service is not @Scoped"), messages.get(1));
+    }
+
+    @Test
+    void abstractClassCanNotBeCreated() throws Exception {
+        assertEquals(List.of("ERROR public abstract class Service {: Class test.Service is abstract and can not be created."), compileService("""
+                @AutoLoadable
+                public abstract class Service {
+                    @DependencyConstructor
+                    public Service() {
+                    }
+                }
+                """));
+    }
+
+    @Test
+    void innerClassMustBeStatic() throws Exception {
+        assertEquals(List.of("ERROR public class Inner {: Class test.Service.Inner is an inner class and can not be created. Make it static."), compileService("""
+                public class Service {
+                    @AutoLoadable
+                    public class Inner {
+                        @DependencyConstructor
+                        public Inner() {
+                        }
+                    }
+                }
+                """));
+    }
+
+    @Test
+    void classNeedsExactlyOneDependencyConstructor() throws Exception {
+        assertEquals(List.of("ERROR public class Service {: Class test.Service has 0 constructors with the DependencyConstructor annotation. There should only be one."), compileService("""
+                @AutoLoadable
+                public class Service {
+                    public Service() {
+                    }
+                }
+                """));
+        assertEquals(List.of("ERROR public Service(String name) {: Class test.Service has 2 constructors with the DependencyConstructor annotation. There should only be one."), compileService("""
+                @AutoLoadable
+                public class Service {
+                    @DependencyConstructor
+                    public Service() {
+                    }
+
+                    @DependencyConstructor
+                    public Service(String name) {
+                    }
+                }
+                """));
+    }
+
+    @Test
+    void dependencyConstructorMustBePublic() throws Exception {
+        assertEquals(List.of("ERROR Service() {: The DependencyConstructor of class test.Service has to be public."), compileService("""
+                @AutoLoadable
+                public class Service {
+                    @DependencyConstructor
+                    Service() {
+                    }
+                }
+                """));
+    }
+
+    @Test
+    void classMustNotDependOnItself() throws Exception {
+        assertEquals(List.of("ERROR public Service(Service service) {: Class test.Service depends on itself.",
+                "ERROR Service self;: Class test.Service depends on itself."), compileService("""
+                @AutoLoadable
+                public class Service {
+                    @Inject
+                    Service self;
+
+                    @DependencyConstructor
+                    public Service(Service service) {
+                    }
+                }
+                """));
+    }
+
+    @Test
+    void lifecycleMethodsMustNotTakeParameters() throws Exception {
+        assertEquals(List.of("ERROR public int start(String name) {: AutoRun method start in class test.Service must not have parameters.",
+                "ERROR public int start(String name) {: AutoRun method start in class test.Service must not return a value.",
+                "ERROR public void close(String reason) {: AutoClose method close in class test.Service must not have parameters.",
+                "ERROR public void warm(int round) {: Warmup method warm in class test.Service must not have parameters.",
+                "ERROR public void cool() {: Warmup method cool in class test.Service needs at least one iteration and a positive budget."), compileService("""
+                @AutoLoadable
+                public class Service {
+                    @DependencyConstructor
+                    public Service() {
+                    }
+
+                    @AutoRun
+                    public int start(String name) {
+                        return 0;
+                    }
+
+                    @AutoClose
+                    public void close(String reason) {
+                    }
+
+                    @Warmup
+                    public void warm(int round) {
+                    }
+
+                    @Warmup(iterations = 0)
+                    public void cool() {
+                    }
+                }
+                """));
+    }
+
+    @Test
+    void missingDependencyMustBeProvided() throws Exception {
+        String repository = """
+                package test;
+
+                public class Repository {
+                }
+                """;
+        assertEquals(List.of("ERROR public Service(Repository repository) {: Class test.Service depends on test.Repository, which is neither @AutoLoadable nor @Provided."),
+                TestSources.compile(Map.of("test.Repository", repository, "test.Service", """
+                        package test;
+
+                        import me.alex.dpl.annotation.*;
+
+                        @AutoLoadable
+                        public class Service {
+                            @DependencyConstructor
+                            public Service(Repository repository) {
+                            }
+                        }
+                        """)));
+        assertEquals(List.of(), TestSources.compile(Map.of("test.Repository", repository, "test.Service", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Service {
+                    @Inject
+                    @Provided
+                    Repository field;
+
+                    @DependencyConstructor
+                    public Service(@Provided Repository repository) {
+                    }
+                }
+                """)));
+        assertEquals(List.of(), TestSources.compile(Map.of("test.Repository", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @Provided
+                public class Repository {
+                }
+                """, "test.Service", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Service {
+                    @DependencyConstructor
+                    public Service(Repository repository) {
+                    }
+                }
+                """)));
+    }
+
+    @Test
+    void ambiguousDependencyIsAWarning() throws Exception {
+        String disk = """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @Named("disk")
+                @AutoLoadable
+                public class DiskStore implements Context {
+                    @DependencyConstructor
+                    public DiskStore() {
+                    }
+                }
+                """;
+        String memory = """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @Named("memory")
+                @AutoLoadable
+                public class MemoryStore implements Context {
+                    @DependencyConstructor
+                    public MemoryStore() {
+                    }
+                }
+                """;
+        assertEquals(List.of("WARNING public Service(Context context) {: Class test.Service depends on test.Context, which is implemented by more than one dependency. Use @Named to choose one."),
+                TestSources.compile(Map.of("test.Context", CONTEXT, "test.DiskStore", disk, "test.MemoryStore", memory, "test.Service", """
+                        package test;
+
+                        import me.alex.dpl.annotation.*;
+
+                        @AutoLoadable
+                        public class Service {
+                            @DependencyConstructor
+                            public Service(Context context) {
+                            }
+                        }
+                        """)));
+        assertEquals(List.of(), TestSources.compile(Map.of("test.Context", CONTEXT, "test.DiskStore", disk, "test.MemoryStore", memory, "test.Service", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Service {
+                    @DependencyConstructor
+                    public Service(@Named("disk") Context context) {
+                    }
+                }
+                """)));
+    }
+
+    //Compiles test.Service, the source starts after its imports
+    private static List<String> compileService(String source) throws Exception {
+        return TestSources.compile(Map.of("test.Service", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                """ + source));
+    }
+}
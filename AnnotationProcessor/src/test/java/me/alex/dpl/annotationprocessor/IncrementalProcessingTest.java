@@ -0,0 +1,115 @@
+package me.alex.dpl.annotationprocessor;
+
+import me.alex.dpl.Constants;
+import me.alex.dpl.index.DependencyIndex;
+import me.alex.dpl.index.IndexEntry;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalProcessingTest {
+    private static final String SERVICE = """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Service {
+                @DependencyConstructor
+                public Service() {
+                }
+            }
+            """;
+    private static final String CLIENT = """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Client {
+                @DependencyConstructor
+                public Client(Service service) {
+                }
+            }
+            """;
+    private static final FileTime OLD = FileTime.fromMillis(1_000_000_000_000L);
+
+    @Test
+    void isDeclaredAsAggregatingProcessor() throws Exception {
+        try (InputStream stream = Processor.class.getClassLoader().getResourceAsStream("META-INF/gradle/incremental.annotation.processors")) {
+            assertNotNull(stream);
+            assertEquals(Processor.class.getName() + ",aggregating", new String(stream.readAllBytes(), StandardCharsets.UTF_8).trim());
+        }
+    }
+
+    @Test
+    void recompilingUnchangedClassesKeepsTheIndexUntouched() throws Exception {
+        Path classes = Files.createTempDirectory("dpl-incremental").resolve("classes");
+        assertEquals(List.of(), TestSources.compile(classes, Map.of("test.Service", SERVICE, "test.Client", CLIENT)));
+        Path index = classes.resolve(Constants.INDEX_FILE);
+        byte[] written = Files.readAllBytes(index);
+        Files.setLastModifiedTime(index, OLD);
+
+        //Only the client is compiled again, the service is merged from the old index
+        assertEquals(List.of(), TestSources.compile(classes, Map.of("test.Client", CLIENT)));
+        assertEquals(OLD, Files.getLastModifiedTime(index), "An unchanged index was written again");
+        assertArrayEquals(written, Files.readAllBytes(index));
+        assertEquals(List.of("test.Service", "test.Client"), readClassNames(index));
+    }
+
+    @Test
+    void partialCompilationsAddAndRemoveClasses() throws Exception {
+        Path classes = Files.createTempDirectory("dpl-incremental").resolve("classes");
+        TestSources.compile(classes, Map.of("test.Service", SERVICE, "test.Client", CLIENT));
+        Path index = classes.resolve(Constants.INDEX_FILE);
+
+        assertEquals(List.of(), TestSources.compile(classes, Map.of("test.Audit", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Audit {
+                    @DependencyConstructor
+                    public Audit(Client client) {
+                    }
+                }
+                """)));
+        assertEquals(List.of("test.Service", "test.Client", "test.Audit"), readClassNames(index));
+
+        //The client is no longer a dependency, the audit compiled next to it no longer needs it
+        assertEquals(List.of(), TestSources.compile(classes, Map.of("test.Client", """
+                package test;
+
+                public class Client {
+                }
+                """, "test.Audit", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Audit {
+                    @DependencyConstructor
+                    public Audit(Service service) {
+                    }
+                }
+                """)));
+        assertEquals(List.of("test.Service", "test.Audit"), readClassNames(index));
+    }
+
+    private static List<String> readClassNames(Path index) throws Exception {
+        return DependencyIndex.read(ByteBuffer.wrap(Files.readAllBytes(index))).getEntries().stream()
+                .map(IndexEntry::getClassName)
+                .toList();
+    }
+}
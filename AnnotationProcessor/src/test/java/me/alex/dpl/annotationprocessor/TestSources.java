@@ -0,0 +1,90 @@
+package me.alex.dpl.annotationprocessor;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiles test dependencies with the annotation processor and collects what it reports, so the checks of the
+ * processor can be tested without a class loader.
+ */
+final class TestSources {
+    private TestSources() {
+    }
+
+    /**
+     * Compiles the sources into a new temp directory.
+     *
+     * @param sources The sources by binary class name
+     * @return The errors and warnings of the compilation, each as "KIND element: message"
+     * @throws IOException If the sources or classes can not be written
+     */
+    static List<String> compile(Map<String, String> sources) throws IOException {
+        return compile(Files.createTempDirectory("dpl-processor-test").resolve("classes"), sources);
+    }
+
+    /**
+     * Compiles the sources into the given directory, like an incremental build only compiling the changed sources.
+     * Classes already in the directory are on the classpath.
+     *
+     * @param classes The class output directory, created if it does not exist
+     * @param sources The sources by binary class name
+     * @return The errors and warnings of the compilation, each as "KIND element: message"
+     * @throws IOException If the sources or classes can not be written
+     */
+    static List<String> compile(Path classes, Map<String, String> sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("The tests need a JDK to compile the test dependencies.");
+        }
+        Path sourceDirectory = Files.createTempDirectory("dpl-processor-sources");
+        Files.createDirectories(classes);
+
+        List<Path> files = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            Path file = sourceDirectory.resolve(source.getKey().replace('.', '/') + ".java");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source.getValue(), StandardCharsets.UTF_8);
+            files.add(file);
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            List<String> arguments = List.of("-d", classes.toString(), "-s", classes.toString(),
+                    "-classpath", classes + File.pathSeparator + System.getProperty("java.class.path"), "-implicit:none", "-Xlint:-processing");
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, arguments, null,
+                    fileManager.getJavaFileObjectsFromPaths(files));
+            task.setProcessors(List.of(new Processor()));
+            task.call();
+        }
+
+        List<String> messages = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR || diagnostic.getKind() == Diagnostic.Kind.WARNING) {
+                messages.add(diagnostic.getKind() + " " + getLine(diagnostic) + ": " + diagnostic.getMessage(Locale.ROOT));
+            }
+        }
+        return messages;
+    }
+
+    //The source line of the element the message was reported on, trimmed
+    private static String getLine(Diagnostic<? extends JavaFileObject> diagnostic) throws IOException {
+        if (diagnostic.getSource() == null || diagnostic.getLineNumber() == Diagnostic.NOPOS) {
+            return "";
+        }
+        String[] lines = diagnostic.getSource().getCharContent(true).toString().split("\n");
+        return lines[(int) diagnostic.getLineNumber() - 1].trim();
+    }
+}
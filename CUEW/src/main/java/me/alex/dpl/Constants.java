@@ -3,5 +3,18 @@ package me.alex.dpl;
 public class Constants {
 
     public static final String ANNOTATION_STORAGE_FILE = "META-INF/annotations";
+    public static final String INDEX_FILE = "META-INF/dependencies.index";
+    public static final String FACTORY_SUFFIX = "_DependencyFactory";
 
+    /**
+     * Returns the binary name of the generated factory for the given class.
+     * Nested classes are flattened, so {@code a.Outer$Inner} becomes {@code a.Outer_Inner_DependencyFactory}.
+     *
+     * @param binaryName The binary name of the class
+     * @return The binary name of the factory
+     */
+    public static String getFactoryName(String binaryName) {
+        int packageEnd = binaryName.lastIndexOf('.') + 1;
+        return binaryName.substring(0, packageEnd) + binaryName.substring(packageEnd).replace('$', '_') + FACTORY_SUFFIX;
+    }
 }
@@ -0,0 +1,14 @@
+package me.alex.dpl.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method as auto-closable.
+ * This means that the method will be called when the DependencyManager shuts down, after all dependencies depending on
+ * its class were closed. Classes without such methods are closed with {@link AutoCloseable#close()} if they implement it.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AutoClose {
+}
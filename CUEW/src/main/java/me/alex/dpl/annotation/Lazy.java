@@ -0,0 +1,17 @@
+package me.alex.dpl.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an {@link AutoLoadable} class as lazy.
+ * The class is not created during init, but the first time it is requested or needed by another dependency.
+ * Its fields are injected and its {@link AutoRun} methods are run right after it was created.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(java.lang.annotation.ElementType.TYPE)
+@Documented
+public @interface Lazy {
+}
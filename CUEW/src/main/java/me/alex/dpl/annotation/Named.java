@@ -0,0 +1,16 @@
+package me.alex.dpl.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Qualifies a dependency by name.
+ * On a class, the name is added to the class and all of its supertypes. On a field or constructor parameter, only the
+ * dependency with this name is injected. Needed when more than one dependency implements the same supertype.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.FIELD, ElementType.PARAMETER})
+@Documented
+public @interface Named {
+
+    String value();
+}
@@ -0,0 +1,14 @@
+package me.alex.dpl.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a dependency as provided from outside, for example with {@code DependencyManager#addDependency}.
+ * On a class, every dependency on the class is provided. On a field or constructor parameter, only this dependency is.
+ * The annotation processor fails the build for dependencies that are neither {@link AutoLoadable} nor provided.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.FIELD, ElementType.PARAMETER})
+@Documented
+public @interface Provided {
+}
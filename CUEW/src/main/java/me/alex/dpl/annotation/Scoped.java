@@ -0,0 +1,17 @@
+package me.alex.dpl.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an {@link AutoLoadable} class as scoped.
+ * The class is not created during init, but once in every scope created with {@code DependencyManager#createScope}.
+ * Scoped classes may depend on all other dependencies, but only scoped classes may depend on them.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(java.lang.annotation.ElementType.TYPE)
+@Documented
+public @interface Scoped {
+}
@@ -0,0 +1,24 @@
+package me.alex.dpl.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method as a warm-up hook.
+ * This means that the method will be called repeatedly after init, before the DependencyManager declares readiness,
+ * so the code it runs is compiled and its caches are filled before the first real request.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Warmup {
+
+    /**
+     * How often the method is called.
+     */
+    int iterations() default 1;
+
+    /**
+     * How long the method may be called in total, in milliseconds. No further iteration starts after that.
+     */
+    long budgetMs() default 1000;
+}
@@ -0,0 +1,35 @@
+package me.alex.dpl.factory;
+
+import java.util.function.Supplier;
+
+/**
+ * A {@link Supplier} resolving a deferred dependency on the first call. Dependencies are singletons within their
+ * resolver, so two threads resolving concurrently get the same instance and no lock is needed.
+ */
+final class CachedSupplier<T> implements Supplier<T> {
+    private final DependencyResolver resolver;
+    private final Class<T> clazz;
+    private final String qualifier;
+    private volatile T instance;
+
+    CachedSupplier(DependencyResolver resolver, Class<T> clazz, String qualifier) {
+        this.resolver = resolver;
+        this.clazz = clazz;
+        this.qualifier = qualifier;
+    }
+
+    @Override
+    public T get() {
+        T resolved = instance;
+        if (resolved == null) {
+            resolved = resolver.resolve(clazz, qualifier);
+            instance = resolved;
+        }
+        return resolved;
+    }
+
+    @Override
+    public String toString() {
+        return "Supplier<" + clazz.getName() + (qualifier.isEmpty() ? "" : " named " + qualifier) + ">";
+    }
+}
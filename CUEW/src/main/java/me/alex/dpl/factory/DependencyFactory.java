@@ -0,0 +1,71 @@
+package me.alex.dpl.factory;
+
+import java.util.Set;
+
+/**
+ * A factory generated by the annotation processor for every {@link me.alex.dpl.annotation.AutoLoadable} class.
+ * It calls the {@link me.alex.dpl.annotation.DependencyConstructor} directly and sets accessible
+ * {@link me.alex.dpl.annotation.Inject} fields without reflection.
+ *
+ * @param <T> The type created by this factory
+ */
+public interface DependencyFactory<T> {
+
+    /**
+     * Creates a new instance by calling the dependency constructor.
+     *
+     * @param resolver Resolves the constructor parameters
+     * @return The new instance
+     */
+    T create(DependencyResolver resolver);
+
+    /**
+     * Sets every field listed in {@link #getInjectedFields()}.
+     *
+     * @param instance The instance to inject into
+     * @param resolver Resolves the field values
+     */
+    void inject(T instance, DependencyResolver resolver);
+
+    /**
+     * Returns the names of the fields set by {@link #inject(Object, DependencyResolver)}.
+     * Private or final fields are not part of this set and have to be injected by the DependencyManager itself.
+     *
+     * @return The injected field names
+     */
+    Set<String> getInjectedFields();
+
+    /**
+     * Returns whether this factory creates, injects, runs and closes the instance on its own. The members of such a
+     * class are never looked up, like the classes of a generated {@link DependencyPlan}.
+     *
+     * @return Whether the DependencyManager never needs the members of the class
+     */
+    default boolean isComplete() {
+        return false;
+    }
+
+    /**
+     * Runs the {@link me.alex.dpl.annotation.AutoRun} or {@link me.alex.dpl.annotation.Warmup} method with the given
+     * name. Private methods can not be run by a generated factory and have to be run by the DependencyManager itself.
+     *
+     * @param instance The instance to run the method on
+     * @param method   The name of the method
+     * @return Whether the method was run
+     */
+    default boolean run(T instance, String method) {
+        return false;
+    }
+
+    /**
+     * Runs all {@link me.alex.dpl.annotation.AutoClose} methods of the instance. A generated factory only closes
+     * instances whose methods are all accessible, otherwise the DependencyManager runs them itself.
+     *
+     * @param instance The instance to close
+     * @return Whether the methods were run
+     * @throws Exception If a method failed
+     */
+    default boolean close(T instance) throws Exception {
+        return false;
+    }
+}
@@ -0,0 +1,30 @@
+package me.alex.dpl.factory;
+
+import java.util.List;
+
+/**
+ * The fully resolved construction plan of all {@link me.alex.dpl.annotation.AutoLoadable} classes, generated by the
+ * annotation processor when the {@code dpl.plan} option names the class to generate.
+ * <p>
+ * A DependencyManager initialized with a plan does not read the index from the classpath and does not look up
+ * constructors, fields or methods reflectively. Only classes the generated code can not reach, like private classes or
+ * classes with private members, are still loaded reflectively.
+ */
+public interface DependencyPlan {
+
+    /**
+     * Returns the entries in load order.
+     *
+     * @return The entries
+     */
+    List<PlanEntry> getEntries();
+
+    /**
+     * Returns the names of the {@link me.alex.dpl.annotation.Provided} types the entries depend on.
+     *
+     * @return The provided types
+     */
+    default List<String> getProvidedTypes() {
+        return List.of();
+    }
+}
@@ -0,0 +1,44 @@
+package me.alex.dpl.factory;
+
+import java.util.function.Supplier;
+
+/**
+ * Resolves already created dependencies for a {@link DependencyFactory}.
+ */
+public interface DependencyResolver {
+
+    /**
+     * Returns the instance of the given class or the only dependency implementing it.
+     *
+     * @param clazz The class to resolve
+     * @param <T>   The class type
+     * @return The instance
+     * @throws IllegalStateException If the dependency does not exist
+     */
+    <T> T resolve(Class<T> clazz);
+
+    /**
+     * Returns the dependency with the given {@link me.alex.dpl.annotation.Named} qualifier that is or implements the
+     * given class.
+     *
+     * @param clazz     The class to resolve
+     * @param qualifier The qualifier of the dependency
+     * @param <T>       The class type
+     * @return The instance
+     * @throws IllegalStateException If the dependency does not exist
+     */
+    <T> T resolve(Class<T> clazz, String qualifier);
+
+    /**
+     * Returns a {@link Supplier} of the dependency, which resolves it on the first call of {@link Supplier#get()} and
+     * keeps it afterwards. The dependency does not have to exist yet when the supplier is created.
+     *
+     * @param clazz     The class to resolve
+     * @param qualifier The qualifier of the dependency or an empty string
+     * @param <T>       The class type
+     * @return The supplier
+     */
+    default <T> Supplier<T> provider(Class<T> clazz, String qualifier) {
+        return new CachedSupplier<>(this, clazz, qualifier);
+    }
+}
@@ -0,0 +1,74 @@
+package me.alex.dpl.factory;
+
+import me.alex.dpl.index.IndexEntry;
+
+import java.util.List;
+
+/**
+ * One class of a {@link DependencyPlan}. Classes that are fully handled by their generated factory carry their class,
+ * factory and member types, so they can be set up without reflection. All other classes only carry their
+ * {@link IndexEntry} and are loaded reflectively.
+ */
+public final class PlanEntry {
+    private final IndexEntry indexEntry;
+    private final Class<?> type;
+    private final DependencyFactory<?> factory;
+    private final List<Class<?>> parameterTypes;
+    private final List<Class<?>> fieldTypes;
+
+    /**
+     * Creates an entry for a class that has to be loaded reflectively.
+     *
+     * @param indexEntry The metadata of the class
+     */
+    public PlanEntry(IndexEntry indexEntry) {
+        this(indexEntry, null, null, List.of(), List.of());
+    }
+
+    /**
+     * Creates an entry for a class that is fully handled by its generated factory.
+     *
+     * @param indexEntry     The metadata of the class
+     * @param type           The class
+     * @param factory        The generated factory of the class
+     * @param parameterTypes The types of the constructor parameters
+     * @param fieldTypes     The types of the {@link me.alex.dpl.annotation.Inject} fields, in the order of the index entry
+     */
+    public PlanEntry(IndexEntry indexEntry, Class<?> type, DependencyFactory<?> factory, List<Class<?>> parameterTypes, List<Class<?>> fieldTypes) {
+        this.indexEntry = indexEntry;
+        this.type = type;
+        this.factory = factory;
+        this.parameterTypes = List.copyOf(parameterTypes);
+        this.fieldTypes = List.copyOf(fieldTypes);
+    }
+
+    public IndexEntry getIndexEntry() {
+        return indexEntry;
+    }
+
+    /**
+     * Returns the class or null if the class has to be loaded reflectively.
+     *
+     * @return The class or null
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Returns the generated factory or null if the class has to be loaded reflectively.
+     *
+     * @return The factory or null
+     */
+    public DependencyFactory<?> getFactory() {
+        return factory;
+    }
+
+    public List<Class<?>> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public List<Class<?>> getFieldTypes() {
+        return fieldTypes;
+    }
+}
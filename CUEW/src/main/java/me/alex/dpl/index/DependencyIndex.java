@@ -0,0 +1,413 @@
+package me.alex.dpl.index;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The binary dependency index written by the annotation processor and read by the DependencyManager.
+ * <p>
+ * The entries are stored in load order. Every entry knows the positions of the entries it depends on, so the
+ * runtime does not have to rediscover constructors, fields, methods or edges.
+ * <pre>
+ * int    magic
+ * short  version
+ * int    string count, then per string: int length, UTF-8 bytes
+ * int    entry count, then per entry:
+ *        int class name, int qualifier
+ *        int supertype count, int[] supertype names
+ *        int parameter count, per parameter: int type name, int qualifier, byte deferred
+ *        int field count, per field: int name, int type name, int qualifier, byte deferred
+ *        int method count, per method: int name, int priority, byte async
+ *        int close method count, int[] close method names
+ *        int warm-up method count, per method: int name, int iterations, long budget in milliseconds
+ *        int edge count, int[] entry positions
+ * int    provided type count, int[] provided type names
+ * </pre>
+ * Every name is stored as a position in the string table.
+ * <p>
+ * Every entry is bound to its own class and all of its supertypes, once without and once with its qualifier. A
+ * dependency on a supertype therefore resolves in a single lookup. Deferred dependencies do not create an edge, they
+ * are only resolved after the entry was created.
+ * <p>
+ * Types marked as {@link me.alex.dpl.annotation.Provided} are not part of the entries, but are kept as provided types,
+ * so the runtime knows which dependencies are added from outside and waits for them instead of failing.
+ */
+public final class DependencyIndex {
+    public static final int MAGIC = 0x44504C49;
+    public static final short VERSION = 6;
+    /**
+     * Returned by {@link #resolve(String, String)} if no entry is bound to the type.
+     */
+    public static final int NOT_FOUND = -1;
+    /**
+     * Returned by {@link #resolve(String, String)} if more than one entry is bound to the type.
+     */
+    public static final int AMBIGUOUS = -2;
+
+    private static final byte UNVISITED = 0;
+    private static final byte VISITING = 1;
+    private static final byte SORTED = 2;
+
+    private final List<IndexEntry> entries;
+    private final int[][] edges;
+    private final List<String> providedTypes;
+    //qualifier -> type name -> entry position, the empty qualifier contains every entry
+    private final Map<String, Map<String, Integer>> bindings = new HashMap<>();
+
+    /**
+     * Creates an index from sorted entries and computes the edges between them.
+     * Dependencies that are not part of the index or are ambiguous do not create an edge.
+     *
+     * @param entries The entries in load order
+     */
+    public DependencyIndex(List<IndexEntry> entries) {
+        this(entries, List.of());
+    }
+
+    /**
+     * Creates an index from sorted entries and the types provided from outside and computes the edges between them.
+     * Dependencies that are not part of the index or are ambiguous do not create an edge.
+     *
+     * @param entries       The entries in load order
+     * @param providedTypes The names of the {@link me.alex.dpl.annotation.Provided} types the entries depend on
+     */
+    public DependencyIndex(List<IndexEntry> entries, List<String> providedTypes) {
+        this.entries = List.copyOf(entries);
+        this.providedTypes = List.copyOf(providedTypes);
+        this.edges = new int[entries.size()][];
+        bind();
+
+        for (int i = 0; i < entries.size(); i++) {
+            IndexEntry entry = entries.get(i);
+            Set<Integer> dependencies = new LinkedHashSet<>();
+            for (int j = 0; j < entry.getConstructorParameters().size(); j++) {
+                if (!entry.getParameterDeferred().get(j)) {
+                    dependencies.add(resolve(entry.getConstructorParameters().get(j), entry.getParameterQualifiers().get(j)));
+                }
+            }
+            for (IndexEntry.InjectField field : entry.getInjectFields()) {
+                if (!field.isDeferred()) {
+                    dependencies.add(resolve(field.getType(), field.getQualifier()));
+                }
+            }
+            edges[i] = dependencies.stream()
+                    .filter(position -> position >= 0)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    private DependencyIndex(List<IndexEntry> entries, int[][] edges, List<String> providedTypes) {
+        this.entries = entries;
+        this.edges = edges;
+        this.providedTypes = providedTypes;
+        bind();
+    }
+
+    /**
+     * Merges the indexes of several modules into one index in global load order. Dependencies between the modules are
+     * resolved against the entries of all modules, so every entry is sorted after the entries it depends on, wherever
+     * they were indexed. Types one module expects from outside, but another module indexes, are no longer provided.
+     * A class indexed by more than one module is only kept once. Entries on a cycle keep their order.
+     *
+     * @param indexes The indexes of the modules
+     * @return The merged index
+     */
+    public static DependencyIndex merge(List<DependencyIndex> indexes) {
+        List<IndexEntry> entries = new ArrayList<>();
+        Set<String> classNames = new HashSet<>();
+        Set<String> providedTypes = new LinkedHashSet<>();
+        for (DependencyIndex index : indexes) {
+            for (IndexEntry entry : index.getEntries()) {
+                if (classNames.add(entry.getClassName())) {
+                    entries.add(entry);
+                }
+            }
+            providedTypes.addAll(index.getProvidedTypes());
+        }
+
+        //The edges of the concatenated entries cross the modules, every module on its own is already sorted
+        DependencyIndex unsorted = new DependencyIndex(entries);
+        byte[] states = new byte[entries.size()];
+        List<IndexEntry> sorted = new ArrayList<>(entries.size());
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int root = 0; root < entries.size(); root++) {
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                int node = stack.peek();
+                if (states[node] == SORTED) {
+                    stack.pop();
+                    continue;
+                }
+                states[node] = VISITING;
+                boolean ready = true;
+                int[] dependencies = unsorted.edges[node];
+                for (int i = dependencies.length - 1; i >= 0; i--) {
+                    if (states[dependencies[i]] == UNVISITED) {
+                        stack.push(dependencies[i]);
+                        ready = false;
+                    }
+                }
+                if (ready) {
+                    stack.pop();
+                    states[node] = SORTED;
+                    sorted.add(entries.get(node));
+                }
+            }
+        }
+
+        providedTypes.removeIf(type -> unsorted.resolve(type, "") != NOT_FOUND);
+        return new DependencyIndex(sorted, List.copyOf(providedTypes));
+    }
+
+    private void bind() {
+        for (int i = 0; i < entries.size(); i++) {
+            IndexEntry entry = entries.get(i);
+
+            List<String> types = new ArrayList<>(entry.getSupertypes());
+            types.add(entry.getClassName());
+            for (String type : types) {
+                bind("", type, i);
+                if (!entry.getQualifier().isEmpty()) {
+                    bind(entry.getQualifier(), type, i);
+                }
+            }
+        }
+    }
+
+    private void bind(String qualifier, String type, int position) {
+        //A class always wins over the classes extending it, otherwise a type may only be bound once
+        bindings.computeIfAbsent(qualifier, key -> new HashMap<>())
+                .merge(type, position, (old, current) -> {
+                    if (isClass(old, type) || old.equals(current)) {
+                        return old;
+                    }
+                    return isClass(current, type) ? current : AMBIGUOUS;
+                });
+    }
+
+    private boolean isClass(int position, String type) {
+        return position >= 0 && entries.get(position).getClassName().equals(type);
+    }
+
+    /**
+     * Reads an index from the given buffer.
+     *
+     * @param buffer The buffer containing the index
+     * @return The index
+     * @throws IOException If the buffer does not contain a valid index of the current version
+     */
+    public static DependencyIndex read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a dependency index.");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported dependency index version " + version + ". Expected " + VERSION + ".");
+            }
+
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            int size = buffer.getInt();
+            List<IndexEntry> entries = new ArrayList<>(size);
+            int[][] edges = new int[size][];
+            for (int i = 0; i < size; i++) {
+                String className = strings[buffer.getInt()];
+                String qualifier = strings[buffer.getInt()];
+
+                List<String> supertypes = new ArrayList<>();
+                for (int j = buffer.getInt(); j > 0; j--) {
+                    supertypes.add(strings[buffer.getInt()]);
+                }
+
+                List<String> parameters = new ArrayList<>();
+                List<String> parameterQualifiers = new ArrayList<>();
+                List<Boolean> parameterDeferred = new ArrayList<>();
+                for (int j = buffer.getInt(); j > 0; j--) {
+                    parameters.add(strings[buffer.getInt()]);
+                    parameterQualifiers.add(strings[buffer.getInt()]);
+                    parameterDeferred.add(buffer.get() != 0);
+                }
+
+                List<IndexEntry.InjectField> fields = new ArrayList<>();
+                for (int j = buffer.getInt(); j > 0; j--) {
+                    fields.add(new IndexEntry.InjectField(strings[buffer.getInt()], strings[buffer.getInt()], strings[buffer.getInt()], buffer.get() != 0));
+                }
+
+                List<IndexEntry.AutoRunMethod> methods = new ArrayList<>();
+                for (int j = buffer.getInt(); j > 0; j--) {
+                    methods.add(new IndexEntry.AutoRunMethod(strings[buffer.getInt()], buffer.getInt(), buffer.get() != 0));
+                }
+
+                List<String> closeMethods = new ArrayList<>();
+                for (int j = buffer.getInt(); j > 0; j--) {
+                    closeMethods.add(strings[buffer.getInt()]);
+                }
+
+                List<IndexEntry.WarmupMethod> warmupMethods = new ArrayList<>();
+                for (int j = buffer.getInt(); j > 0; j--) {
+                    warmupMethods.add(new IndexEntry.WarmupMethod(strings[buffer.getInt()], buffer.getInt(), buffer.getLong()));
+                }
+
+                edges[i] = new int[buffer.getInt()];
+                for (int j = 0; j < edges[i].length; j++) {
+                    edges[i][j] = buffer.getInt();
+                }
+                entries.add(new IndexEntry(className, qualifier, supertypes, parameters, parameterQualifiers, parameterDeferred, fields, methods, closeMethods, warmupMethods));
+            }
+
+            List<String> providedTypes = new ArrayList<>();
+            for (int j = buffer.getInt(); j > 0; j--) {
+                providedTypes.add(strings[buffer.getInt()]);
+            }
+            return new DependencyIndex(List.copyOf(entries), edges, List.copyOf(providedTypes));
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupted dependency index.", e);
+        }
+    }
+
+    /**
+     * Writes this index to the given stream.
+     *
+     * @param outputStream The stream to write to
+     * @throws IOException If writing fails
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (IndexEntry entry : entries) {
+            strings.putIfAbsent(entry.getClassName(), strings.size());
+            strings.putIfAbsent(entry.getQualifier(), strings.size());
+            entry.getSupertypes().forEach(supertype -> strings.putIfAbsent(supertype, strings.size()));
+            entry.getConstructorParameters().forEach(parameter -> strings.putIfAbsent(parameter, strings.size()));
+            entry.getParameterQualifiers().forEach(qualifier -> strings.putIfAbsent(qualifier, strings.size()));
+            for (IndexEntry.InjectField field : entry.getInjectFields()) {
+                strings.putIfAbsent(field.getName(), strings.size());
+                strings.putIfAbsent(field.getType(), strings.size());
+                strings.putIfAbsent(field.getQualifier(), strings.size());
+            }
+            entry.getAutoRunMethods().forEach(method -> strings.putIfAbsent(method.getName(), strings.size()));
+            entry.getCloseMethods().forEach(method -> strings.putIfAbsent(method, strings.size()));
+            entry.getWarmupMethods().forEach(method -> strings.putIfAbsent(method.getName(), strings.size()));
+        }
+        providedTypes.forEach(type -> strings.putIfAbsent(type, strings.size()));
+
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+
+        out.writeInt(strings.size());
+        for (String string : strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        out.writeInt(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            IndexEntry entry = entries.get(i);
+            out.writeInt(strings.get(entry.getClassName()));
+            out.writeInt(strings.get(entry.getQualifier()));
+
+            out.writeInt(entry.getSupertypes().size());
+            for (String supertype : entry.getSupertypes()) {
+                out.writeInt(strings.get(supertype));
+            }
+
+            out.writeInt(entry.getConstructorParameters().size());
+            for (int j = 0; j < entry.getConstructorParameters().size(); j++) {
+                out.writeInt(strings.get(entry.getConstructorParameters().get(j)));
+                out.writeInt(strings.get(entry.getParameterQualifiers().get(j)));
+                out.writeByte(entry.getParameterDeferred().get(j) ? 1 : 0);
+            }
+
+            out.writeInt(entry.getInjectFields().size());
+            for (IndexEntry.InjectField field : entry.getInjectFields()) {
+                out.writeInt(strings.get(field.getName()));
+                out.writeInt(strings.get(field.getType()));
+                out.writeInt(strings.get(field.getQualifier()));
+                out.writeByte(field.isDeferred() ? 1 : 0);
+            }
+
+            out.writeInt(entry.getAutoRunMethods().size());
+            for (IndexEntry.AutoRunMethod method : entry.getAutoRunMethods()) {
+                out.writeInt(strings.get(method.getName()));
+                out.writeInt(method.getPriority());
+                out.writeByte(method.isAsync() ? 1 : 0);
+            }
+
+            out.writeInt(entry.getCloseMethods().size());
+            for (String method : entry.getCloseMethods()) {
+                out.writeInt(strings.get(method));
+            }
+
+            out.writeInt(entry.getWarmupMethods().size());
+            for (IndexEntry.WarmupMethod method : entry.getWarmupMethods()) {
+                out.writeInt(strings.get(method.getName()));
+                out.writeInt(method.getIterations());
+                out.writeLong(method.getBudgetMs());
+            }
+
+            out.writeInt(edges[i].length);
+            for (int edge : edges[i]) {
+                out.writeInt(edge);
+            }
+        }
+
+        out.writeInt(providedTypes.size());
+        for (String type : providedTypes) {
+            out.writeInt(strings.get(type));
+        }
+        out.flush();
+    }
+
+    /**
+     * Returns the entries in load order.
+     *
+     * @return The entries
+     */
+    public List<IndexEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the names of the types the entries depend on, which are added from outside of the index.
+     *
+     * @return The provided types
+     */
+    public List<String> getProvidedTypes() {
+        return providedTypes;
+    }
+
+    /**
+     * Returns the positions of the entries the entry at the given position depends on.
+     *
+     * @param position The position of the entry
+     * @return The positions of its dependencies
+     */
+    public int[] getEdges(int position) {
+        return edges[position].clone();
+    }
+
+    /**
+     * Returns the position of the entry a dependency on the given type resolves to. An entry of exactly the given
+     * class wins over entries extending it.
+     *
+     * @param type      The type name of the dependency
+     * @param qualifier The qualifier of the dependency or an empty string
+     * @return The position of the entry, {@link #NOT_FOUND} or {@link #AMBIGUOUS}
+     */
+    public int resolve(String type, String qualifier) {
+        return bindings.getOrDefault(qualifier, Map.of()).getOrDefault(type, NOT_FOUND);
+    }
+}
@@ -0,0 +1,213 @@
+package me.alex.dpl.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The precomputed metadata of one {@link me.alex.dpl.annotation.AutoLoadable} class.
+ * Type names are stored in the format of {@link Class#getName()}. A missing {@link me.alex.dpl.annotation.Named}
+ * qualifier is stored as an empty string.
+ * <p>
+ * A deferred dependency is injected as a {@link java.util.function.Supplier} of its type. It is resolved on the first
+ * call of {@link java.util.function.Supplier#get()}, so it does not have to exist before the class is created.
+ */
+public final class IndexEntry {
+    private final String className;
+    private final String qualifier;
+    private final List<String> supertypes;
+    private final List<String> constructorParameters;
+    private final List<String> parameterQualifiers;
+    private final List<Boolean> parameterDeferred;
+    private final List<InjectField> injectFields;
+    private final List<AutoRunMethod> autoRunMethods;
+    private final List<String> closeMethods;
+    private final List<WarmupMethod> warmupMethods;
+
+    public IndexEntry(String className, String qualifier, List<String> supertypes, List<String> constructorParameters, List<String> parameterQualifiers, List<InjectField> injectFields, List<AutoRunMethod> autoRunMethods) {
+        this(className, qualifier, supertypes, constructorParameters, parameterQualifiers, Collections.nCopies(constructorParameters.size(), false), injectFields, autoRunMethods);
+    }
+
+    public IndexEntry(String className, String qualifier, List<String> supertypes, List<String> constructorParameters, List<String> parameterQualifiers, List<Boolean> parameterDeferred, List<InjectField> injectFields, List<AutoRunMethod> autoRunMethods) {
+        this(className, qualifier, supertypes, constructorParameters, parameterQualifiers, parameterDeferred, injectFields, autoRunMethods, List.of());
+    }
+
+    public IndexEntry(String className, String qualifier, List<String> supertypes, List<String> constructorParameters, List<String> parameterQualifiers, List<Boolean> parameterDeferred, List<InjectField> injectFields, List<AutoRunMethod> autoRunMethods, List<String> closeMethods) {
+        this(className, qualifier, supertypes, constructorParameters, parameterQualifiers, parameterDeferred, injectFields, autoRunMethods, closeMethods, List.of());
+    }
+
+    public IndexEntry(String className, String qualifier, List<String> supertypes, List<String> constructorParameters, List<String> parameterQualifiers, List<Boolean> parameterDeferred, List<InjectField> injectFields, List<AutoRunMethod> autoRunMethods, List<String> closeMethods, List<WarmupMethod> warmupMethods) {
+        if (constructorParameters.size() != parameterQualifiers.size() || constructorParameters.size() != parameterDeferred.size()) {
+            throw new IllegalArgumentException("Every constructor parameter needs a qualifier.");
+        }
+        this.className = className;
+        this.qualifier = qualifier;
+        this.supertypes = List.copyOf(supertypes);
+        this.constructorParameters = List.copyOf(constructorParameters);
+        this.parameterQualifiers = List.copyOf(parameterQualifiers);
+        this.parameterDeferred = List.copyOf(parameterDeferred);
+        this.injectFields = List.copyOf(injectFields);
+        this.autoRunMethods = List.copyOf(autoRunMethods);
+        this.closeMethods = List.copyOf(closeMethods);
+        this.warmupMethods = List.copyOf(warmupMethods);
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getQualifier() {
+        return qualifier;
+    }
+
+    /**
+     * Returns all superclasses and interfaces of the class, excluding {@link Object}.
+     *
+     * @return The supertypes
+     */
+    public List<String> getSupertypes() {
+        return supertypes;
+    }
+
+    public List<String> getConstructorParameters() {
+        return constructorParameters;
+    }
+
+    public List<String> getParameterQualifiers() {
+        return parameterQualifiers;
+    }
+
+    /**
+     * Returns for every constructor parameter whether it is a deferred dependency. The constructor parameters contain
+     * the type of the dependency, not {@link java.util.function.Supplier}.
+     *
+     * @return Whether the parameters are deferred
+     */
+    public List<Boolean> getParameterDeferred() {
+        return parameterDeferred;
+    }
+
+    public List<InjectField> getInjectFields() {
+        return injectFields;
+    }
+
+    public List<AutoRunMethod> getAutoRunMethods() {
+        return autoRunMethods;
+    }
+
+    /**
+     * Returns the names of the {@link me.alex.dpl.annotation.AutoClose} methods in declaration order.
+     *
+     * @return The names of the close methods
+     */
+    public List<String> getCloseMethods() {
+        return closeMethods;
+    }
+
+    /**
+     * Returns the {@link me.alex.dpl.annotation.Warmup} methods in declaration order.
+     *
+     * @return The warm-up methods
+     */
+    public List<WarmupMethod> getWarmupMethods() {
+        return warmupMethods;
+    }
+
+    public List<String> getDependencies() {
+        //all classes needed for this class to be created, constructor parameters first
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < constructorParameters.size(); i++) {
+            if (!parameterDeferred.get(i)) {
+                all.add(constructorParameters.get(i));
+            }
+        }
+        for (InjectField field : injectFields) {
+            if (!field.isDeferred()) {
+                all.add(field.getType());
+            }
+        }
+        return all;
+    }
+
+    public static final class InjectField {
+        private final String name;
+        private final String type;
+        private final String qualifier;
+        private final boolean deferred;
+
+        public InjectField(String name, String type, String qualifier) {
+            this(name, type, qualifier, false);
+        }
+
+        public InjectField(String name, String type, String qualifier, boolean deferred) {
+            this.name = name;
+            this.type = type;
+            this.qualifier = qualifier;
+            this.deferred = deferred;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getQualifier() {
+            return qualifier;
+        }
+
+        public boolean isDeferred() {
+            return deferred;
+        }
+    }
+
+    public static final class AutoRunMethod {
+        private final String name;
+        private final int priority;
+        private final boolean async;
+
+        public AutoRunMethod(String name, int priority, boolean async) {
+            this.name = name;
+            this.priority = priority;
+            this.async = async;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public boolean isAsync() {
+            return async;
+        }
+    }
+
+    public static final class WarmupMethod {
+        private final String name;
+        private final int iterations;
+        private final long budgetMs;
+
+        public WarmupMethod(String name, int iterations, long budgetMs) {
+            this.name = name;
+            this.iterations = iterations;
+            this.budgetMs = budgetMs;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        public long getBudgetMs() {
+            return budgetMs;
+        }
+    }
+}
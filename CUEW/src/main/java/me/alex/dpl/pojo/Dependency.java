@@ -1,30 +1,94 @@
 package me.alex.dpl.pojo;
 
+import me.alex.dpl.factory.DependencyFactory;
+
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public final class Dependency {
     private final Class<?> clazz;
     private final Constructor<?> constructor;
-    private final List<Field> injectionFields;
+    private final List<Class<?>> parameterTypes;
+    private final List<String> parameterQualifiers;
+    private final List<Boolean> parameterDeferred;
+    private final List<InjectionField> injectionFields;
     private final List<AutoRunMethod> injectionMethods;
+    private final List<CloseMethod> closeMethods;
+    private final List<WarmupMethod> warmupMethods;
+    private final DependencyFactory<?> factory;
+
+    /**
+     * @param cons                The dependency constructor or null if the class is only created by its factory
+     * @param parameterTypes      The parameter types of the dependency constructor
+     * @param parameterQualifiers The {@link me.alex.dpl.annotation.Named} qualifier of every constructor parameter,
+     *                            an empty string for parameters without one
+     */
+    public Dependency(Class<?> clazz, Constructor<?> cons, List<Class<?>> parameterTypes, List<String> parameterQualifiers, List<InjectionField> injectionFields, List<AutoRunMethod> injectionMethods, DependencyFactory<?> factory) {
+        this(clazz, cons, parameterTypes, parameterQualifiers, Collections.nCopies(parameterTypes.size(), false), injectionFields, injectionMethods, factory);
+    }
+
+    /**
+     * @param cons                The dependency constructor or null if the class is only created by its factory
+     * @param parameterTypes      The parameter types of the dependency constructor, the type of the dependency for
+     *                            deferred parameters
+     * @param parameterQualifiers The {@link me.alex.dpl.annotation.Named} qualifier of every constructor parameter,
+     *                            an empty string for parameters without one
+     * @param parameterDeferred   Whether every constructor parameter is a {@link java.util.function.Supplier} of its
+     *                            dependency
+     */
+    public Dependency(Class<?> clazz, Constructor<?> cons, List<Class<?>> parameterTypes, List<String> parameterQualifiers, List<Boolean> parameterDeferred, List<InjectionField> injectionFields, List<AutoRunMethod> injectionMethods, DependencyFactory<?> factory) {
+        this(clazz, cons, parameterTypes, parameterQualifiers, parameterDeferred, injectionFields, injectionMethods, List.of(), factory);
+    }
 
-    public Dependency(Class<?> clazz, Constructor<?> cons, List<Class<?>> dependencies, List<Field> injectionFields, List<AutoRunMethod> injectionMethods) {
+    /**
+     * @param cons                The dependency constructor or null if the class is only created by its factory
+     * @param parameterTypes      The parameter types of the dependency constructor, the type of the dependency for
+     *                            deferred parameters
+     * @param parameterQualifiers The {@link me.alex.dpl.annotation.Named} qualifier of every constructor parameter,
+     *                            an empty string for parameters without one
+     * @param parameterDeferred   Whether every constructor parameter is a {@link java.util.function.Supplier} of its
+     *                            dependency
+     * @param closeMethods        The {@link me.alex.dpl.annotation.AutoClose} methods in declaration order
+     */
+    public Dependency(Class<?> clazz, Constructor<?> cons, List<Class<?>> parameterTypes, List<String> parameterQualifiers, List<Boolean> parameterDeferred, List<InjectionField> injectionFields, List<AutoRunMethod> injectionMethods, List<CloseMethod> closeMethods, DependencyFactory<?> factory) {
+        this(clazz, cons, parameterTypes, parameterQualifiers, parameterDeferred, injectionFields, injectionMethods, closeMethods, List.of(), factory);
+    }
+
+    /**
+     * @param cons                The dependency constructor or null if the class is only created by its factory
+     * @param parameterTypes      The parameter types of the dependency constructor, the type of the dependency for
+     *                            deferred parameters
+     * @param parameterQualifiers The {@link me.alex.dpl.annotation.Named} qualifier of every constructor parameter,
+     *                            an empty string for parameters without one
+     * @param parameterDeferred   Whether every constructor parameter is a {@link java.util.function.Supplier} of its
+     *                            dependency
+     * @param closeMethods        The {@link me.alex.dpl.annotation.AutoClose} methods in declaration order
+     * @param warmupMethods       The {@link me.alex.dpl.annotation.Warmup} methods in declaration order
+     */
+    public Dependency(Class<?> clazz, Constructor<?> cons, List<Class<?>> parameterTypes, List<String> parameterQualifiers, List<Boolean> parameterDeferred, List<InjectionField> injectionFields, List<AutoRunMethod> injectionMethods, List<CloseMethod> closeMethods, List<WarmupMethod> warmupMethods, DependencyFactory<?> factory) {
         this.clazz = clazz;
         this.constructor = cons;
-        this.injectionFields = injectionFields;
-        this.injectionMethods = injectionMethods;
+        this.parameterTypes = List.copyOf(parameterTypes);
+        this.parameterQualifiers = List.copyOf(parameterQualifiers);
+        this.parameterDeferred = List.copyOf(parameterDeferred);
+        this.injectionFields = List.copyOf(injectionFields);
+        this.injectionMethods = List.copyOf(injectionMethods);
+        this.closeMethods = List.copyOf(closeMethods);
+        this.warmupMethods = List.copyOf(warmupMethods);
+        this.factory = factory;
     }
 
     public Class<?> getClazz() {
         return clazz;
     }
 
-    public List<Field> getInjectionFields() {
-        return List.copyOf(injectionFields);
+    public List<InjectionField> getInjectionFields() {
+        return injectionFields;
     }
 
 
@@ -32,39 +96,166 @@ public final class Dependency {
         return constructor;
     }
 
+    /**
+     * Returns the generated factory of this class or null if the class was compiled without the annotation processor.
+     *
+     * @return The factory or null
+     */
+    public DependencyFactory<?> getFactory() {
+        return factory;
+    }
+
     public List<AutoRunMethod> getInjectionMethods() {
-        return List.copyOf(injectionMethods);
+        return injectionMethods;
+    }
+
+    public List<CloseMethod> getCloseMethods() {
+        return closeMethods;
+    }
+
+    public List<WarmupMethod> getWarmupMethods() {
+        return warmupMethods;
     }
 
     public List<Class<?>> getConstructorParameters() {
-        return List.of(constructor.getParameterTypes());
+        return parameterTypes;
+    }
+
+    public List<String> getParameterQualifiers() {
+        return parameterQualifiers;
+    }
+
+    public List<Boolean> getParameterDeferred() {
+        return parameterDeferred;
     }
 
     public List<Class<?>> getDependencies() {
-        //all classes needed for this class to be created, excluding the class itself
-        List<? extends Class<?>> fields = injectionFields.stream().map(Field::getType).toList();
-        List<? extends Class<?>> cons = List.of(constructor.getParameterTypes());
+        //all classes needed for this class to be created, excluding the class itself and deferred dependencies
+        List<? extends Class<?>> fields = injectionFields.stream().filter(field -> !field.isDeferred()).map(InjectionField::getType).toList();
         List<Class<?>> all = new ArrayList<>();
         all.addAll(fields);
-        all.addAll(cons);
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            if (!parameterDeferred.get(i)) {
+                all.add(parameterTypes.get(i));
+            }
+        }
         return all;
     }
 
+    public static class InjectionField {
+        private final String name;
+        private final Class<?> type;
+        private final Field field;
+        private final MethodHandle setter;
+        private final String qualifier;
+        private final boolean deferred;
+
+        /**
+         * @param field     The field to inject
+         * @param setter    A setter of the type {@code (Object, Object)void} or null if the field has to be set reflectively
+         * @param qualifier The {@link me.alex.dpl.annotation.Named} qualifier of the field or an empty string
+         */
+        public InjectionField(Field field, MethodHandle setter, String qualifier) {
+            this(field.getName(), field.getType(), field, setter, qualifier, false);
+        }
+
+        /**
+         * @param name      The name of the field
+         * @param type      The type of the field
+         * @param field     The field to inject or null if it is only set by the generated factory
+         * @param setter    A setter of the type {@code (Object, Object)void} or null if the field has to be set reflectively
+         * @param qualifier The {@link me.alex.dpl.annotation.Named} qualifier of the field or an empty string
+         */
+        public InjectionField(String name, Class<?> type, Field field, MethodHandle setter, String qualifier) {
+            this(name, type, field, setter, qualifier, false);
+        }
+
+        /**
+         * @param name      The name of the field
+         * @param type      The type of the field, the type of the dependency for deferred fields
+         * @param field     The field to inject or null if it is only set by the generated factory
+         * @param setter    A setter of the type {@code (Object, Object)void} or null if the field has to be set reflectively
+         * @param qualifier The {@link me.alex.dpl.annotation.Named} qualifier of the field or an empty string
+         * @param deferred  Whether the field is a {@link java.util.function.Supplier} of its dependency
+         */
+        public InjectionField(String name, Class<?> type, Field field, MethodHandle setter, String qualifier, boolean deferred) {
+            this.name = name;
+            this.type = type;
+            this.field = field;
+            this.setter = setter;
+            this.qualifier = qualifier;
+            this.deferred = deferred;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        public MethodHandle getSetter() {
+            return setter;
+        }
+
+        public String getQualifier() {
+            return qualifier;
+        }
+
+        public boolean isDeferred() {
+            return deferred;
+        }
+    }
+
     public static class AutoRunMethod implements Comparable<AutoRunMethod> {
+        private final String name;
         private final Method method;
+        private final MethodHandle handle;
         private final int priority;
         private final boolean async;
 
-        public AutoRunMethod(Method method, int priority, boolean async) {
+        /**
+         * @param method   The method to run
+         * @param handle   A handle of the type {@code (Object)void} or null if the method has to be invoked reflectively
+         * @param priority The priority of the method
+         * @param async    Whether the method runs async
+         */
+        public AutoRunMethod(Method method, MethodHandle handle, int priority, boolean async) {
+            this(method.getName(), method, handle, priority, async);
+        }
+
+        /**
+         * @param name     The name of the method
+         * @param method   The method to run or null if it is only run by the generated factory
+         * @param handle   A handle of the type {@code (Object)void} or null if the method has to be invoked reflectively
+         * @param priority The priority of the method
+         * @param async    Whether the method runs async
+         */
+        public AutoRunMethod(String name, Method method, MethodHandle handle, int priority, boolean async) {
+            this.name = name;
             this.method = method;
+            this.handle = handle;
             this.priority = priority;
             this.async = async;
         }
 
+        public String getName() {
+            return name;
+        }
+
         public Method getMethod() {
             return method;
         }
 
+        public MethodHandle getHandle() {
+            return handle;
+        }
+
         public int getPriority() {
             return priority;
         }
@@ -78,4 +269,76 @@ public final class Dependency {
             return Integer.compare(priority, o.priority);
         }
     }
+
+    public static class CloseMethod {
+        private final String name;
+        private final Method method;
+        private final MethodHandle handle;
+
+        /**
+         * @param name   The name of the method
+         * @param method The method to call or null if it is only called by the generated factory
+         * @param handle A handle of the type {@code (Object)void} or null if the method has to be invoked reflectively
+         */
+        public CloseMethod(String name, Method method, MethodHandle handle) {
+            this.name = name;
+            this.method = method;
+            this.handle = handle;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public MethodHandle getHandle() {
+            return handle;
+        }
+    }
+
+    public static class WarmupMethod {
+        private final String name;
+        private final Method method;
+        private final MethodHandle handle;
+        private final int iterations;
+        private final long budgetMs;
+
+        /**
+         * @param name       The name of the method
+         * @param method     The method to call or null if it is only called by the generated factory
+         * @param handle     A handle of the type {@code (Object)void} or null if the method has to be invoked reflectively
+         * @param iterations How often the method is called
+         * @param budgetMs   How long the method may be called in total, in milliseconds
+         */
+        public WarmupMethod(String name, Method method, MethodHandle handle, int iterations, long budgetMs) {
+            this.name = name;
+            this.method = method;
+            this.handle = handle;
+            this.iterations = iterations;
+            this.budgetMs = budgetMs;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public MethodHandle getHandle() {
+            return handle;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        public long getBudgetMs() {
+            return budgetMs;
+        }
+    }
 }
@@ -0,0 +1,148 @@
+package me.alex.dpl.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyIndexTest {
+
+    @Test
+    void roundTripKeepsEveryEntry() throws IOException {
+        IndexEntry repository = new IndexEntry("test.Repository", "main", List.of("test.Store"), List.of(), List.of(), List.of(), List.of(),
+                List.of(), List.of("flush", "release"));
+        IndexEntry service = new IndexEntry("test.Service", "", List.of(), List.of("test.Store", "test.Clock", "int"), List.of("main", "", ""),
+                List.of(false, true, false),
+                List.of(new IndexEntry.InjectField("config", "test.Config", ""), new IndexEntry.InjectField("later", "test.Repository", "", true)),
+                List.of(new IndexEntry.AutoRunMethod("start", 1, false), new IndexEntry.AutoRunMethod("load", 2, true)), List.of(),
+                List.of(new IndexEntry.WarmupMethod("warm", 100, 5_000_000_000L)));
+        DependencyIndex index = new DependencyIndex(List.of(repository, service), List.of("test.Config"));
+
+        DependencyIndex read = DependencyIndex.read(ByteBuffer.wrap(write(index)));
+
+        assertEquals(List.of("test.Config"), read.getProvidedTypes());
+        assertEquals(2, read.getEntries().size());
+        for (int i = 0; i < 2; i++) {
+            IndexEntry expected = index.getEntries().get(i);
+            IndexEntry actual = read.getEntries().get(i);
+            assertEquals(expected.getClassName(), actual.getClassName());
+            assertEquals(expected.getQualifier(), actual.getQualifier());
+            assertEquals(expected.getSupertypes(), actual.getSupertypes());
+            assertEquals(expected.getConstructorParameters(), actual.getConstructorParameters());
+            assertEquals(expected.getParameterQualifiers(), actual.getParameterQualifiers());
+            assertEquals(expected.getParameterDeferred(), actual.getParameterDeferred());
+            assertEquals(expected.getCloseMethods(), actual.getCloseMethods());
+            assertEquals(expected.getInjectFields().size(), actual.getInjectFields().size());
+            for (int j = 0; j < expected.getInjectFields().size(); j++) {
+                IndexEntry.InjectField expectedField = expected.getInjectFields().get(j);
+                IndexEntry.InjectField actualField = actual.getInjectFields().get(j);
+                assertEquals(expectedField.getName(), actualField.getName());
+                assertEquals(expectedField.getType(), actualField.getType());
+                assertEquals(expectedField.getQualifier(), actualField.getQualifier());
+                assertEquals(expectedField.isDeferred(), actualField.isDeferred());
+            }
+            assertEquals(expected.getAutoRunMethods().size(), actual.getAutoRunMethods().size());
+            for (int j = 0; j < expected.getAutoRunMethods().size(); j++) {
+                IndexEntry.AutoRunMethod expectedMethod = expected.getAutoRunMethods().get(j);
+                IndexEntry.AutoRunMethod actualMethod = actual.getAutoRunMethods().get(j);
+                assertEquals(expectedMethod.getName(), actualMethod.getName());
+                assertEquals(expectedMethod.getPriority(), actualMethod.getPriority());
+                assertEquals(expectedMethod.isAsync(), actualMethod.isAsync());
+            }
+            assertEquals(expected.getWarmupMethods().size(), actual.getWarmupMethods().size());
+            for (int j = 0; j < expected.getWarmupMethods().size(); j++) {
+                IndexEntry.WarmupMethod expectedMethod = expected.getWarmupMethods().get(j);
+                IndexEntry.WarmupMethod actualMethod = actual.getWarmupMethods().get(j);
+                assertEquals(expectedMethod.getName(), actualMethod.getName());
+                assertEquals(expectedMethod.getIterations(), actualMethod.getIterations());
+                assertEquals(expectedMethod.getBudgetMs(), actualMethod.getBudgetMs());
+            }
+            assertArrayEquals(index.getEdges(i), read.getEdges(i));
+        }
+        //The qualified store is the repository, the deferred clock and the primitive create no edge
+        assertArrayEquals(new int[]{0}, read.getEdges(1));
+    }
+
+    @Test
+    void rejectsOtherVersions() throws IOException {
+        byte[] bytes = write(new DependencyIndex(List.of(entry("test.Service"))));
+        ByteBuffer.wrap(bytes).putShort(4, (short) (DependencyIndex.VERSION - 1));
+        assertThrows(IOException.class, () -> DependencyIndex.read(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    void rejectsTruncatedIndexes() throws IOException {
+        byte[] bytes = write(new DependencyIndex(List.of(entry("test.Service", "test.Repository"), entry("test.Repository"))));
+        assertThrows(IOException.class, () -> DependencyIndex.read(ByteBuffer.wrap(bytes, 0, bytes.length - 6)));
+    }
+
+    @Test
+    void resolvesClassesBeforeSupertypes() {
+        IndexEntry base = new IndexEntry("test.Base", "", List.of("test.Api"), List.of(), List.of(), List.of(), List.of());
+        IndexEntry child = new IndexEntry("test.Child", "", List.of("test.Base", "test.Api"), List.of(), List.of(), List.of(), List.of());
+        DependencyIndex index = new DependencyIndex(List.of(base, child));
+
+        assertEquals(0, index.resolve("test.Base", ""));
+        assertEquals(1, index.resolve("test.Child", ""));
+        assertEquals(DependencyIndex.AMBIGUOUS, index.resolve("test.Api", ""));
+        assertEquals(DependencyIndex.NOT_FOUND, index.resolve("test.Missing", ""));
+    }
+
+    @Test
+    void mergeSortsAcrossModules() {
+        //The service module expects the repository from outside, the storage module indexes it
+        DependencyIndex services = new DependencyIndex(List.of(entry("app.Service", "lib.Repository"), entry("app.Controller", "app.Service")),
+                List.of("lib.Repository", "app.Config"));
+        DependencyIndex storage = new DependencyIndex(List.of(entry("lib.Connection"), entry("lib.Repository", "lib.Connection")));
+
+        DependencyIndex merged = DependencyIndex.merge(List.of(services, storage));
+
+        List<String> order = merged.getEntries().stream().map(IndexEntry::getClassName).toList();
+        assertEquals(4, order.size());
+        assertTrue(order.indexOf("lib.Connection") < order.indexOf("lib.Repository"), "Order: " + order);
+        assertTrue(order.indexOf("lib.Repository") < order.indexOf("app.Service"), "Order: " + order);
+        assertTrue(order.indexOf("app.Service") < order.indexOf("app.Controller"), "Order: " + order);
+        assertEquals(List.of("app.Config"), merged.getProvidedTypes());
+        int service = merged.resolve("app.Service", "");
+        assertArrayEquals(new int[]{merged.resolve("lib.Repository", "")}, merged.getEdges(service));
+    }
+
+    @Test
+    void mergeKeepsDuplicatesOnce() {
+        DependencyIndex first = new DependencyIndex(List.of(entry("lib.Shared"), entry("app.First", "lib.Shared")));
+        DependencyIndex second = new DependencyIndex(List.of(entry("lib.Shared"), entry("app.Second", "lib.Shared")));
+
+        DependencyIndex merged = DependencyIndex.merge(List.of(first, second));
+
+        assertEquals(List.of("lib.Shared", "app.First", "app.Second"), merged.getEntries().stream().map(IndexEntry::getClassName).toList());
+    }
+
+    @Test
+    void mergeKeepsCyclesInOrder() {
+        IndexEntry first = new IndexEntry("app.First", "", List.of(), List.of("app.Second"), List.of(""), List.of(true),
+                List.of(), List.of());
+        DependencyIndex module = new DependencyIndex(List.of(first, entry("app.Second", "app.First")));
+
+        DependencyIndex merged = DependencyIndex.merge(List.of(module));
+
+        assertEquals(List.of("app.First", "app.Second"), merged.getEntries().stream().map(IndexEntry::getClassName).toList());
+        //The deferred side of the cycle creates no edge
+        assertEquals(0, merged.getEdges(0).length);
+    }
+
+    private static IndexEntry entry(String className, String... parameters) {
+        return new IndexEntry(className, "", List.of(), List.of(parameters), Collections.nCopies(parameters.length, ""),
+                List.of(), List.of());
+    }
+
+    private static byte[] write(DependencyIndex index) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(bytes);
+        return bytes.toByteArray();
+    }
+}
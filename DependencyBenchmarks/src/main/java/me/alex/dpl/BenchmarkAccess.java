@@ -0,0 +1,67 @@
+package me.alex.dpl;
+
+import me.alex.dpl.index.DependencyIndex;
+import me.alex.dpl.pojo.Dependency;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exposes the package-private constructor and init phases of the {@link DependencyManager} to the benchmarks.
+ */
+public final class BenchmarkAccess {
+    //Strongly referenced, otherwise the level is lost when the logger is garbage collected
+    private static final Logger LOGGER = Logger.getLogger(DependencyManager.class.getSimpleName());
+
+    private BenchmarkAccess() {
+    }
+
+    /**
+     * Hides the info logs of the {@link DependencyManager}, so they do not end up in the measurements.
+     */
+    public static void disableLogging() {
+        LOGGER.setLevel(Level.WARNING);
+    }
+
+    public static DependencyManager createManager() {
+        return new DependencyManager();
+    }
+
+    public static void init(DependencyManager manager, ClassLoader loader) {
+        manager.init(loader);
+    }
+
+    /**
+     * Reads the index through the plan cache of the manager, like {@link DependencyManager#init(ClassLoader)} does.
+     */
+    public static DependencyIndex readCachedIndex(DependencyManager manager, ClassLoader loader) {
+        return manager.readCachedIndex(loader);
+    }
+
+    /**
+     * Reads and merges all indexes of the class loader without the plan cache or the merged indexes of previous
+     * managers, like the first start of a JVM without a plan cache does.
+     */
+    public static DependencyIndex mergeIndexes(DependencyManager manager, ClassLoader loader) throws IOException {
+        return manager.mergeIndexes(Collections.list(loader.getResources(Constants.INDEX_FILE)));
+    }
+
+    public static List<Dependency> fetchClasses(DependencyManager manager, DependencyIndex index, ClassLoader loader) {
+        return manager.fetchIndexedClasses(index, loader);
+    }
+
+    public static void createInstances(DependencyManager manager, List<Dependency> dependencies) {
+        manager.createInstances(dependencies);
+    }
+
+    public static void injectFields(DependencyManager manager, List<Dependency> dependencies) {
+        manager.injectFields(dependencies);
+    }
+
+    public static void runMethods(DependencyManager manager, List<Dependency> dependencies) {
+        manager.runMethods(dependencies);
+    }
+}
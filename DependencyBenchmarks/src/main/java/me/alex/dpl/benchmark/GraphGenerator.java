@@ -0,0 +1,173 @@
+package me.alex.dpl.benchmark;
+
+import me.alex.dpl.Constants;
+import me.alex.dpl.annotationprocessor.Processor;
+import me.alex.dpl.index.DependencyIndex;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Generates and compiles synthetic graphs of {@link me.alex.dpl.annotation.AutoLoadable} classes.
+ * The classes are compiled with the annotation processor, so every graph has its own dependency index and factories.
+ * Compiled graphs are cached in the temp directory, per index version and build of the annotation processor.
+ */
+public final class GraphGenerator {
+    public static final String PACKAGE = "dpl.graph";
+    //Graphs compiled by another processor may have an outdated index or outdated factories
+    private static final String PROCESSOR_VERSION = "v" + DependencyIndex.VERSION + "-" + hashProcessor();
+
+    private GraphGenerator() {
+    }
+
+    /**
+     * Compiles the graph if needed and returns a class loader containing it.
+     *
+     * @param shape The shape of the graph
+     * @param size  The number of nodes
+     * @return A class loader containing the graph and its dependency index
+     * @throws IOException If the sources or classes can not be written
+     */
+    public static URLClassLoader load(GraphShape shape, int size) throws IOException {
+        Path classes = compile(shape, size, PACKAGE, shape.name().toLowerCase() + "-" + size);
+        return new URLClassLoader(new URL[]{classes.toUri().toURL()}, GraphGenerator.class.getClassLoader());
+    }
+
+    /**
+     * Compiles the graph once per module if needed and returns a class loader containing all modules. Every module
+     * has its own package and dependency index.
+     *
+     * @param shape   The shape of the graph
+     * @param size    The number of nodes per module
+     * @param modules The number of modules
+     * @return A class loader containing the modules and their dependency indexes
+     * @throws IOException If the sources or classes can not be written
+     */
+    public static URLClassLoader load(GraphShape shape, int size, int modules) throws IOException {
+        URL[] urls = new URL[modules];
+        for (int module = 0; module < modules; module++) {
+            Path classes = compile(shape, size, PACKAGE + ".module" + module, shape.name().toLowerCase() + "-" + size + "-module" + module);
+            urls[module] = classes.toUri().toURL();
+        }
+        return new URLClassLoader(urls, GraphGenerator.class.getClassLoader());
+    }
+
+    /**
+     * Returns the name of the given node.
+     *
+     * @param node The node
+     * @return The binary name of the node class
+     */
+    public static String getClassName(int node) {
+        return PACKAGE + ".Node" + node;
+    }
+
+    /**
+     * Compiles the graph into the given cache directory unless it already contains it and returns its classes.
+     */
+    private static Path compile(GraphShape shape, int size, String packageName, String name) throws IOException {
+        Path directory = Path.of(System.getProperty("java.io.tmpdir"), "dpl-graphs", PROCESSOR_VERSION, name);
+        Path classes = directory.resolve("classes");
+        if (!Files.exists(classes.resolve(Constants.INDEX_FILE))) {
+            compile(shape, size, packageName, directory.resolve("sources"), classes);
+        }
+        return classes;
+    }
+
+    /**
+     * Hashes the jar or class directory the annotation processor was loaded from.
+     */
+    private static String hashProcessor() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            Path location = Path.of(Processor.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            List<Path> files;
+            try (Stream<Path> stream = Files.walk(location)) {
+                files = stream.filter(Files::isRegularFile).sorted().toList();
+            }
+            for (Path file : files) {
+                digest.update(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(file));
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException | URISyntaxException e) {
+            throw new IllegalStateException("Failed to hash the annotation processor.", e);
+        }
+    }
+
+    private static void compile(GraphShape shape, int size, String packageName, Path sources, Path classes) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("The benchmarks need a JDK to compile the dependency graphs.");
+        }
+
+        Path packageDirectory = sources.resolve(packageName.replace('.', '/'));
+        Files.createDirectories(packageDirectory);
+        Files.createDirectories(classes);
+
+        List<Path> files = new ArrayList<>();
+        for (int node = 0; node < size; node++) {
+            Path file = packageDirectory.resolve("Node" + node + ".java");
+            Files.writeString(file, createSource(shape, packageName, node), StandardCharsets.UTF_8);
+            files.add(file);
+        }
+
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            List<String> options = List.of("-d", classes.toString(), "-classpath", System.getProperty("java.class.path"), "-implicit:none");
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostic -> {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    System.err.println(diagnostic);
+                }
+            }, options, null, fileManager.getJavaFileObjectsFromPaths(files));
+            task.setProcessors(List.of(new Processor()));
+
+            if (!task.call()) {
+                throw new IllegalStateException("Failed to compile the " + shape + " graph with " + size + " nodes.");
+            }
+        }
+    }
+
+    private static String createSource(GraphShape shape, String packageName, int node) {
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(packageName).append(";\n\n");
+        source.append("import me.alex.dpl.annotation.*;\n\n");
+        source.append("@AutoLoadable\n");
+        source.append("public class Node").append(node).append(" {\n");
+        if (node != 0) {
+            source.append("    @Inject\n");
+            source.append("    Node0 root;\n\n");
+        }
+
+        List<String> parameters = new ArrayList<>();
+        for (int dependency : shape.getDependencies(node)) {
+            parameters.add("Node" + dependency + " node" + dependency);
+        }
+        source.append("    @DependencyConstructor\n");
+        source.append("    public Node").append(node).append("(").append(String.join(", ", parameters)).append(") {\n");
+        source.append("    }\n\n");
+
+        source.append("    @AutoRun\n");
+        source.append("    void run() {\n");
+        source.append("    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+}
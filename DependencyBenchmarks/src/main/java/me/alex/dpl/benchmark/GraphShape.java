@@ -0,0 +1,37 @@
+package me.alex.dpl.benchmark;
+
+/**
+ * The shapes of the synthetic dependency graphs. Node 0 is always the root.
+ */
+public enum GraphShape {
+    /**
+     * Every node depends on the previous node.
+     */
+    CHAIN,
+    /**
+     * Every node depends on the root only.
+     */
+    FAN,
+    /**
+     * Repeated diamonds: a top node, two nodes depending on it and a bottom node depending on both, which is the top
+     * of the next diamond.
+     */
+    DIAMOND;
+
+    /**
+     * Returns the constructor dependencies of the given node.
+     *
+     * @param node The node
+     * @return The nodes the node depends on
+     */
+    public int[] getDependencies(int node) {
+        if (node == 0) {
+            return new int[0];
+        }
+        return switch (this) {
+            case CHAIN -> new int[]{node - 1};
+            case FAN -> new int[]{0};
+            case DIAMOND -> node % 3 == 0 ? new int[]{node - 1, node - 2} : new int[]{node - node % 3};
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package me.alex.dpl.benchmark;
+
+import me.alex.dpl.BenchmarkAccess;
+import me.alex.dpl.DependencyManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link DependencyManager#getDependency(Class)} with one and with all threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LookupBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private URLClassLoader loader;
+    private DependencyManager manager;
+    private Class<?>[] classes;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, ClassNotFoundException {
+        BenchmarkAccess.disableLogging();
+        loader = GraphGenerator.load(GraphShape.FAN, size);
+        manager = BenchmarkAccess.createManager();
+        BenchmarkAccess.init(manager, loader);
+
+        classes = new Class<?>[size];
+        for (int node = 0; node < size; node++) {
+            classes[node] = loader.loadClass(GraphGenerator.getClassName(node));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        loader.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object getDependency(Cursor cursor) {
+        return manager.getDependency(classes[cursor.next(classes.length)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object getDependencyContended(Cursor cursor) {
+        return manager.getDependency(classes[cursor.next(classes.length)]);
+    }
+
+    /**
+     * Walks through all classes, so every thread looks up different classes at the same time.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        public int next(int length) {
+            if (++position >= length) {
+                position = 0;
+            }
+            return position;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package me.alex.dpl.benchmark;
+
+import me.alex.dpl.BenchmarkAccess;
+import me.alex.dpl.DependencyManager;
+import me.alex.dpl.index.DependencyIndex;
+import me.alex.dpl.pojo.Dependency;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every phase of {@link DependencyManager#init()} on its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PhaseBenchmark {
+
+    @Param({"CHAIN", "FAN", "DIAMOND"})
+    public GraphShape shape;
+
+    @Param({"10", "1000", "10000"})
+    public int size;
+
+    private URLClassLoader loader;
+    private DependencyManager manager;
+    private DependencyIndex index;
+    private List<Dependency> dependencies;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkAccess.disableLogging();
+        loader = GraphGenerator.load(shape, size);
+        manager = BenchmarkAccess.createManager();
+        index = manager.readIndex(loader);
+        dependencies = BenchmarkAccess.fetchClasses(manager, index, loader);
+        BenchmarkAccess.createInstances(manager, dependencies);
+        BenchmarkAccess.injectFields(manager, dependencies);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        loader.close();
+    }
+
+    @Benchmark
+    public DependencyIndex readIndex() {
+        return manager.readIndex(loader);
+    }
+
+    @Benchmark
+    public List<Dependency> fetchClasses() {
+        return BenchmarkAccess.fetchClasses(manager, index, loader);
+    }
+
+    @Benchmark
+    public DependencyManager createInstances(EmptyManager emptyManager) {
+        BenchmarkAccess.createInstances(emptyManager.manager, dependencies);
+        return emptyManager.manager;
+    }
+
+    @Benchmark
+    public DependencyManager injectFields() {
+        //Injecting again only overwrites the fields, so the same manager can be reused
+        BenchmarkAccess.injectFields(manager, dependencies);
+        return manager;
+    }
+
+    @Benchmark
+    public DependencyManager runMethods(InjectedManager injectedManager) {
+        BenchmarkAccess.runMethods(injectedManager.manager, dependencies);
+        return injectedManager.manager;
+    }
+
+    /**
+     * A manager without any instances, recreated for every invocation.
+     */
+    @State(Scope.Thread)
+    public static class EmptyManager {
+        private DependencyManager manager;
+
+        @Setup(Level.Invocation)
+        public void setup() {
+            manager = BenchmarkAccess.createManager();
+        }
+    }
+
+    /**
+     * A manager with created and injected instances whose methods did not run yet, recreated for every invocation.
+     */
+    @State(Scope.Thread)
+    public static class InjectedManager {
+        private DependencyManager manager;
+
+        @Setup(Level.Invocation)
+        public void setup(PhaseBenchmark benchmark) {
+            manager = BenchmarkAccess.createManager();
+            BenchmarkAccess.createInstances(manager, benchmark.dependencies);
+            BenchmarkAccess.injectFields(manager, benchmark.dependencies);
+        }
+    }
+}
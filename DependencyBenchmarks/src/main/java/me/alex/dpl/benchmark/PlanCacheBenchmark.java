@@ -0,0 +1,71 @@
+package me.alex.dpl.benchmark;
+
+import me.alex.dpl.BenchmarkAccess;
+import me.alex.dpl.DependencyManager;
+import me.alex.dpl.index.DependencyIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a classpath of many modules through an up to date startup plan cache with reading and merging the
+ * indexes of all modules.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PlanCacheBenchmark {
+
+    @Param({"10", "100"})
+    public int modules;
+
+    @Param({"10", "100"})
+    public int size;
+
+    private URLClassLoader loader;
+    private Path file;
+    private DependencyManager manager;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkAccess.disableLogging();
+        loader = GraphGenerator.load(GraphShape.DIAMOND, size, modules);
+        file = Files.createTempFile("dpl-plan", ".bin");
+        Files.delete(file);
+
+        //The first start writes the plan
+        DependencyManager first = BenchmarkAccess.createManager();
+        first.setPlanCache(file);
+        BenchmarkAccess.init(first, loader);
+        first.shutdown();
+        if (!Files.exists(file)) {
+            throw new IllegalStateException("The plan cache was not written.");
+        }
+
+        manager = BenchmarkAccess.createManager();
+        manager.setPlanCache(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        loader.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public DependencyIndex cacheHit() {
+        return BenchmarkAccess.readCachedIndex(manager, loader);
+    }
+
+    @Benchmark
+    public DependencyIndex cacheMiss() throws IOException {
+        return BenchmarkAccess.mergeIndexes(manager, loader);
+    }
+}
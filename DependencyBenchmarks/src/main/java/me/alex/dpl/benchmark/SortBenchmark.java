@@ -0,0 +1,53 @@
+package me.alex.dpl.benchmark;
+
+import me.alex.dpl.annotationprocessor.DependencyHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DependencyHandler#sortDependencies(List)}, which the annotation processor runs at compile time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SortBenchmark {
+
+    @Param({"CHAIN", "FAN", "DIAMOND"})
+    public GraphShape shape;
+
+    @Param({"10", "1000", "10000"})
+    public int size;
+
+    private List<DependencyHandler.Dependency> dependencies;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dependencies = new ArrayList<>();
+        for (int node = 0; node < size; node++) {
+            List<String> edges = new ArrayList<>();
+            for (int dependency : shape.getDependencies(node)) {
+                edges.add(GraphGenerator.getClassName(dependency));
+            }
+            //Every node but the root injects the root
+            if (node != 0) {
+                edges.add(GraphGenerator.getClassName(0));
+            }
+            dependencies.add(new DependencyHandler.Dependency(GraphGenerator.getClassName(node), edges));
+        }
+        //The processor gets the classes in no particular order
+        Collections.shuffle(dependencies, new Random(42));
+    }
+
+    @Benchmark
+    public List<DependencyHandler.Dependency> sortDependencies() {
+        return new DependencyHandler().sortDependencies(dependencies);
+    }
+}
@@ -0,0 +1,51 @@
+package me.alex.dpl.benchmark;
+
+import me.alex.dpl.BenchmarkAccess;
+import me.alex.dpl.DependencyManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DependencyManager#init()} end to end on a fresh manager.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StartupBenchmark {
+
+    @Param({"CHAIN", "FAN", "DIAMOND"})
+    public GraphShape shape;
+
+    @Param({"10", "1000", "10000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private URLClassLoader loader;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkAccess.disableLogging();
+        loader = GraphGenerator.load(shape, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        loader.close();
+    }
+
+    @Benchmark
+    public DependencyManager init() {
+        DependencyManager manager = BenchmarkAccess.createManager();
+        manager.setParallelInit(parallel);
+        BenchmarkAccess.init(manager, loader);
+        return manager;
+    }
+}
@@ -13,6 +13,7 @@ public class TestClazz {
         Instant now = Instant.now();
         DependencyManager dependencyManager = DependencyManager.getDependencyManager();
         dependencyManager.addDependency(new Wichtig());
+        dependencyManager.setParallelInit(true);
 
         dependencyManager.init();
 
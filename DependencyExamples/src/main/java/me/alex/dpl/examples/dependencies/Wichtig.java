@@ -1,7 +1,9 @@
 package me.alex.dpl.examples.dependencies;
 
 import me.alex.dpl.annotation.AutoRun;
+import me.alex.dpl.annotation.Provided;
 
+@Provided
 public class Wichtig {
 
     public Wichtig() {
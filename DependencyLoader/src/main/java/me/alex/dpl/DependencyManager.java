@@ -1,8 +1,22 @@
 package me.alex.dpl;
 
+import me.alex.dpl.annotation.AutoClose;
 import me.alex.dpl.annotation.AutoRun;
 import me.alex.dpl.annotation.DependencyConstructor;
 import me.alex.dpl.annotation.Inject;
+import me.alex.dpl.annotation.Lazy;
+import me.alex.dpl.annotation.Named;
+import me.alex.dpl.annotation.Scoped;
+import me.alex.dpl.annotation.Warmup;
+import me.alex.dpl.factory.DependencyFactory;
+import me.alex.dpl.factory.DependencyPlan;
+import me.alex.dpl.factory.DependencyResolver;
+import me.alex.dpl.factory.PlanEntry;
+import me.alex.dpl.index.DependencyIndex;
+import me.alex.dpl.index.IndexEntry;
+import me.alex.dpl.instrumentation.BeanStep;
+import me.alex.dpl.instrumentation.StartupListener;
+import me.alex.dpl.instrumentation.StartupPhase;
 import me.alex.dpl.pojo.Dependency;
 import org.jetbrains.annotations.Nullable;
 
@@ -10,239 +24,1682 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.ref.WeakReference;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * The DependencyManager is the main class of this library. It is responsible for loading all dependencies and injecting them into each other.
  * <p>
- * The DependencyManager is a singleton and can be accessed via {@link #getDependencyManager()}.
+ * The DependencyManager is a singleton and can be accessed via {@link #getDependencyManager()}. Independent containers,
+ * for example one per plugin, are created with {@link #createDependencyManager()}. Classes annotated with {@link Scoped}
+ * are created once per {@link DependencyScope}.
  *
  * @author Alexander W / GoldenGamer
  * @version 1.0
  * @serial 1L
  */
 public class DependencyManager {
-    private static DependencyManager dependencyManager;
+    private static final Map<String, Class<?>> PRIMITIVES = Map.of(
+            "boolean", boolean.class, "byte", byte.class, "char", char.class, "short", short.class,
+            "int", int.class, "long", long.class, "float", float.class, "double", double.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType AUTO_RUN_TYPE = MethodType.methodType(void.class, Object.class);
+    //Bound to a type implemented by more than one dependency
+    private static final Class<?> AMBIGUOUS = Void.class;
+    //Cached for types without a dependency, ClassValue can not hold null
+    private static final Object MISSING = new Object();
+    private static final int FETCH_BATCHES = Runtime.getRuntime().availableProcessors();
+    //Classpath fingerprint -> merged index, shared by all DependencyManagers of the JVM
+    private static final Map<String, DependencyIndex> MERGED_INDEXES = new ConcurrentHashMap<>();
     private final Map<Class<?>, Object> objectCache = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Dependency> lazyDependencies = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Dependency> scopedDependencies = new ConcurrentHashMap<>();
+    //Provided types that were not added yet when init started, completed by addDependency
+    private final Map<Class<?>, CompletableFuture<Object>> providedDependencies = new ConcurrentHashMap<>();
+    //The scoped dependencies in load order, created by every new scope
+    private volatile List<Dependency> scopePlan = List.of();
+    //All shared dependencies in load order, closed in reverse by shutdown
+    private volatile List<Dependency> closePlan = List.of();
+    //Read-only view of all unqualified lookups, set once init is done. Adding a dependency drops only the lookups it changes
+    @Nullable
+    private volatile Registry registry;
+    //qualifier -> type -> the class bound to it, the empty qualifier contains every class
+    private final Map<String, Map<Class<?>, Class<?>>> bindings = new ConcurrentHashMap<>();
     private final Logger log = Logger.getLogger(this.getClass().getSimpleName());
     private final AtomicBoolean init = new AtomicBoolean(false);
-    private final ExecutorService executorService = Executors.newWorkStealingPool(ForkJoinPool.getCommonPoolParallelism());
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+    private boolean parallelInit = false;
+    private boolean lazyInit = false;
+    private boolean phasedAutoRun = false;
+    private final Map<String, CompletableFuture<Void>> asyncMethods = new ConcurrentHashMap<>();
+    private ExecutorService executorService = ExecutorStrategy.WORK_STEALING.createExecutorService();
+    //The strategy the executor was created with, null if the caller set their own executor
+    @Nullable
+    private ExecutorStrategy executorStrategy = ExecutorStrategy.WORK_STEALING;
+    //Created on the first close, the executor of init may already be shut down by then
+    @Nullable
+    private volatile ExecutorService closeExecutor;
+    private final Object closeLock = new Object();
+    private boolean ownsExecutor = true;
+    private Duration asyncTimeout = Duration.ofSeconds(30);
+    private Duration closeTimeout = Duration.ofSeconds(10);
+    private Duration warmupTimeout = Duration.ofSeconds(10);
+    private int warmupParallelism = Runtime.getRuntime().availableProcessors();
+    //Completed once init returned
+    private final CompletableFuture<Void> initialized = new CompletableFuture<>();
+    //type -> completed with the dependency once it is injected and all of its AutoRun methods finished
+    private final Map<Class<?>, CompletableFuture<Object>> readyDependencies = new ConcurrentHashMap<>();
+    //Completed with the warmed classes once init and the warm-up are done
+    private final CompletableFuture<Set<Class<?>>> readiness = new CompletableFuture<>();
+    private final List<StartupListener> startupListeners = new CopyOnWriteArrayList<>();
+    @Nullable
+    private PlanCache planCache;
+    private final DependencyResolver resolver = new DependencyResolver() {
+        @Override
+        public <T> T resolve(Class<T> clazz) {
+            Object obj = findDependency(clazz);
+            if (obj == null) {
+                throw new IllegalStateException("Failed to find dependency " + clazz.getName());
+            }
+            return clazz.cast(obj);
+        }
+
+        @Override
+        public <T> T resolve(Class<T> clazz, String qualifier) {
+            Object obj = findDependency(clazz, qualifier);
+            if (obj == null) {
+                throw new IllegalStateException("Failed to find dependency " + clazz.getName() + (qualifier.isEmpty() ? "" : " named " + qualifier));
+            }
+            return clazz.cast(obj);
+        }
+    };
+
+    //Non-Instantiable, package-private for the benchmarks
+    DependencyManager() {
+    }
+
+    /**
+     * Returns the DependencyManager instance
+     *
+     * @return {@link DependencyManager}
+     */
+    public static DependencyManager getDependencyManager() {
+        return Holder.INSTANCE;
+    }
+
+    //Created on the first access by the class loader, which makes the accessor lock-free
+    private static final class Holder {
+        private static final DependencyManager INSTANCE = new DependencyManager();
+    }
+
+    /**
+     * Creates a new, independent DependencyManager. Unlike {@link #getDependencyManager()}, every call returns a new
+     * instance with its own dependencies, which has to be initialized on its own.
+     *
+     * @return {@link DependencyManager} The new instance
+     */
+    public static DependencyManager createDependencyManager() {
+        return new DependencyManager();
+    }
+
+    /**
+     * Initializes the DependencyManager and loads all dependencies. This method can only be called once.
+     */
+    public void init() {
+        init(this.getClass().getClassLoader());
+    }
+
+    /**
+     * Initializes the DependencyManager and loads all dependencies indexed in the given class loader.
+     * This method can only be called once.
+     *
+     * @param loader {@link ClassLoader} The class loader to load the dependencies from
+     */
+    public void init(ClassLoader loader) {
+        init(loader, null);
+    }
+
+    /**
+     * Starts {@link #init()} on a new daemon thread and returns immediately. Use {@link #awaitDependency(Class)} to
+     * continue as soon as the dependencies you need are ready, before all others are. Further calls do not start init
+     * again, they return a future of the init already started.
+     *
+     * @return {@link CompletableFuture} Completed once init returned
+     */
+    public CompletableFuture<Void> initAsync() {
+        return initAsync(this.getClass().getClassLoader());
+    }
+
+    /**
+     * Starts {@link #init(ClassLoader)} on a new daemon thread and returns immediately.
+     *
+     * @param loader {@link ClassLoader} The class loader to load the dependencies from
+     * @return {@link CompletableFuture} Completed once init returned
+     */
+    public CompletableFuture<Void> initAsync(ClassLoader loader) {
+        return startInit(loader, null);
+    }
+
+    /**
+     * Starts {@link #init(DependencyPlan)} on a new daemon thread and returns immediately.
+     *
+     * @param plan {@link DependencyPlan} The generated plan
+     * @return {@link CompletableFuture} Completed once init returned
+     */
+    public CompletableFuture<Void> initAsync(DependencyPlan plan) {
+        return startInit(plan.getClass().getClassLoader(), plan);
+    }
+
+    private CompletableFuture<Void> startInit(ClassLoader loader, @Nullable DependencyPlan plan) {
+        if (!init.compareAndSet(false, true)) {
+            log.warning("DependencyManager#init was already started, returning the started init.");
+            return initialized.copy();
+        }
+        //Not on the executor, init blocks on the tasks it submits there
+        Thread thread = new Thread(() -> {
+            try {
+                runInit(loader, plan);
+            } catch (RuntimeException | Error e) {
+                log.log(Level.SEVERE, "DependencyManager#initAsync failed.", e);
+            }
+        }, "DependencyManager-init");
+        thread.setDaemon(true);
+        thread.start();
+        return initialized.copy();
+    }
+
+    /**
+     * Returns a future that is completed with the dependency of the given type once it is created, injected and all
+     * of its {@link AutoRun} methods finished, including async ones. It may be called before or while init runs.
+     * Types implemented by more than one dependency complete with the first one that is ready. Lazy dependencies are
+     * not created by waiting for them. The future fails once init is done if the type has no dependency or its
+     * dependency failed to start.
+     *
+     * @param clazz The class to wait for
+     * @param <T>   The class type
+     * @return {@link CompletableFuture} Completed with the dependency once it is ready
+     */
+    public <T> CompletableFuture<T> awaitDependency(Class<T> clazz) {
+        CompletableFuture<Object> ready = readyDependencies.computeIfAbsent(clazz, key -> new CompletableFuture<>());
+        if (initialized.isDone()) {
+            failIfMissing(clazz, ready);
+        }
+        return ready.thenApply(clazz::cast);
+    }
+
+    private void markReady(Object object) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        collectTypes(object.getClass(), types);
+        for (Class<?> type : types) {
+            readyDependencies.computeIfAbsent(type, key -> new CompletableFuture<>()).complete(object);
+        }
+    }
+
+    private void failIfMissing(Class<?> type, CompletableFuture<Object> ready) {
+        if (ready.isDone()) {
+            return;
+        }
+        Class<?> bound = getBoundClass(type, "");
+        if (bound == null || bound == AMBIGUOUS || isScoped(bound)) {
+            ready.completeExceptionally(new IllegalStateException("Failed to find dependency " + type.getName()));
+        } else if (!lazyDependencies.containsKey(bound) && !objectCache.containsKey(bound)) {
+            ready.completeExceptionally(new IllegalStateException("Dependency " + bound.getName() + " failed to start"));
+        }
+    }
+
+    /**
+     * Initializes the DependencyManager from a plan generated at build time. The index is not read and the classes
+     * of the plan are set up without reflection. This method can only be called once.
+     *
+     * @param plan {@link DependencyPlan} The generated plan
+     */
+    public void init(DependencyPlan plan) {
+        init(plan.getClass().getClassLoader(), plan);
+    }
+
+    private void init(ClassLoader loader, @Nullable DependencyPlan plan) {
+        if (!init.compareAndSet(false, true)) {
+            log.log(Level.SEVERE, "DependencyManager#init can only be called once.");
+            return;
+        }
+        runInit(loader, plan);
+    }
+
+    private synchronized void runInit(ClassLoader loader, @Nullable DependencyPlan plan) {
+        try {
+            initDependencies(loader, plan);
+        } catch (RuntimeException | Error e) {
+            //Nobody waiting for init, readiness or a dependency should wait forever
+            initialized.completeExceptionally(e);
+            readiness.completeExceptionally(e);
+            readyDependencies.values().forEach(ready -> ready.completeExceptionally(e));
+            throw e;
+        }
+    }
+
+    private void initDependencies(ClassLoader loader, @Nullable DependencyPlan plan) {
+        //Start of loading
+        Instant now = Instant.now();
+        long initStart = startTiming();
+        if (initStart != 0) {
+            startupListeners.forEach(StartupListener::onInitStarted);
+        }
+        //The classes are already in the right order from the Annotation processor
+        long phaseStart = startPhase(StartupPhase.READ_INDEX);
+        DependencyIndex index = plan == null ? readCachedIndex(loader) : null;
+        phaseFinished(StartupPhase.READ_INDEX, phaseStart);
+        List<Dependency> fetchedClasses;
+        phaseStart = startPhase(StartupPhase.FETCH_CLASSES);
+        if (plan != null) {
+            fetchedClasses = fetchBatched(plan.getEntries(), entry -> entry.getIndexEntry().getClassName(), entry -> processPlanEntry(entry, loader));
+        } else if (index != null) {
+            fetchedClasses = fetchIndexedClasses(index, loader);
+        } else {
+            //Fallback for classes indexed by older versions of the annotation processor
+            fetchedClasses = fetchClasses(readClassNames(loader), loader);
+        }
+        if (index != null && planCache != null) {
+            planCache.setFetched(index, fetchedClasses);
+        }
+        expectProvided(plan != null ? plan.getProvidedTypes() : index != null ? index.getProvidedTypes() : List.of(), loader);
+        phaseFinished(StartupPhase.FETCH_CLASSES, phaseStart);
+
+        List<Dependency> eagerClasses = new ArrayList<>();
+        List<Dependency> sharedClasses = new ArrayList<>();
+        List<Dependency> scopedClasses = new ArrayList<>();
+        for (Dependency dependency : fetchedClasses) {
+            if (dependency.getClazz().isAnnotationPresent(Scoped.class)) {
+                scopedDependencies.put(dependency.getClazz(), dependency);
+                scopedClasses.add(dependency);
+                continue;
+            }
+            sharedClasses.add(dependency);
+            if (lazyInit || dependency.getClazz().isAnnotationPresent(Lazy.class)) {
+                lazyDependencies.put(dependency.getClazz(), dependency);
+            } else {
+                eagerClasses.add(dependency);
+            }
+        }
+
+        if (!startupListeners.isEmpty()) {
+            for (Dependency dependency : fetchedClasses) {
+                List<String> dependencies = getBoundDependencies(dependency, true).stream().map(Class::getName).toList();
+                startupListeners.forEach(listener -> listener.onDependencies(dependency.getClazz().getName(), dependencies));
+            }
+        }
+
+        scopePlan = List.copyOf(scopedClasses);
+        closePlan = List.copyOf(sharedClasses);
+        phaseStart = startPhase(StartupPhase.CREATE_INSTANCES);
+        createInstances(sharedClasses);
+        phaseFinished(StartupPhase.CREATE_INSTANCES, phaseStart);
+        phaseStart = startPhase(StartupPhase.AWAIT_PROVIDED);
+        awaitProvided(providedDependencies.keySet());
+        phaseFinished(StartupPhase.AWAIT_PROVIDED, phaseStart);
+        phaseStart = startPhase(StartupPhase.INJECT_FIELDS);
+        injectFields(eagerClasses);
+        phaseFinished(StartupPhase.INJECT_FIELDS, phaseStart);
+        phaseStart = startPhase(StartupPhase.RUN_METHODS);
+        runMethods(eagerClasses);
+        phaseFinished(StartupPhase.RUN_METHODS, phaseStart);
+        freeze();
+
+        //End of loading
+        phaseStart = startPhase(StartupPhase.AWAIT_ASYNC_METHODS);
+        awaitAsyncMethods();
+        phaseFinished(StartupPhase.AWAIT_ASYNC_METHODS, phaseStart);
+
+        //Lazy and scoped dependencies may still run async methods. Tasks that timed out keep running after the shutdown.
+        boolean shutdownExecutor = lazyDependencies.isEmpty() && scopedDependencies.isEmpty() && ownsExecutor;
+
+        String lazyClasses = lazyDependencies.isEmpty() ? "" : " and " + lazyDependencies.size() + " lazy classes";
+        String scoped = scopedDependencies.isEmpty() ? "" : " and " + scopedDependencies.size() + " scoped classes";
+        if (initStart != 0) {
+            long duration = System.nanoTime() - initStart;
+            startupListeners.forEach(listener -> listener.onInitFinished(initStart, duration));
+        }
+        log.info("Success! Finished loading in " + (Instant.now().toEpochMilli() - now.toEpochMilli()) + "ms. With " + eagerClasses.size() + " classes" + lazyClasses + scoped + ".");
+        initialized.complete(null);
+        readyDependencies.forEach(this::failIfMissing);
+        warmup(eagerClasses, shutdownExecutor);
+    }
+
+    /**
+     * Runs the {@link Warmup} methods of the given dependencies in the background on the executor, one class after
+     * another on at most {@link #setWarmupParallelism(int)} threads. Readiness is declared once all of them are done
+     * or the warm-up timeout is reached.
+     *
+     * @param shutdownExecutor Whether the executor is shut down once the warm-up is done
+     */
+    private void warmup(List<Dependency> dependencies, boolean shutdownExecutor) {
+        List<Dependency> hooks = dependencies.stream()
+                .filter(dependency -> !dependency.getWarmupMethods().isEmpty())
+                .toList();
+        if (hooks.isEmpty()) {
+            if (shutdownExecutor) {
+                executorService.shutdown();
+            }
+            readiness.complete(Set.of());
+            return;
+        }
+
+        long phaseStart = startPhase(StartupPhase.WARMUP);
+        long start = System.nanoTime();
+        long deadline = start + warmupTimeout.toNanos();
+        Set<Class<?>> warmed = ConcurrentHashMap.newKeySet();
+        Queue<Dependency> pending = new ConcurrentLinkedQueue<>(hooks);
+        int threads = Math.max(1, Math.min(warmupParallelism, hooks.size()));
+        List<CompletableFuture<?>> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            try {
+                workers.add(CompletableFuture.runAsync(() -> {
+                    Dependency dependency;
+                    while ((dependency = pending.poll()) != null) {
+                        if (warmupDependency(dependency, deadline)) {
+                            warmed.add(dependency.getClazz());
+                        }
+                    }
+                }, executorService));
+            } catch (RejectedExecutionException e) {
+                log.warning("Failed to start the warm-up, the executor is shut down.");
+                break;
+            }
+        }
+        CompletableFuture.allOf(workers.toArray(CompletableFuture<?>[]::new)).whenComplete((unused, throwable) -> {
+            if (shutdownExecutor) {
+                executorService.shutdown();
+            }
+            phaseFinished(StartupPhase.WARMUP, phaseStart);
+            List<String> cold = hooks.stream()
+                    .map(Dependency::getClazz)
+                    .filter(clazz -> !warmed.contains(clazz))
+                    .map(Class::getName)
+                    .toList();
+            log.info("Ready! Warmed up " + warmed.size() + " of " + hooks.size() + " classes in " + Duration.ofNanos(System.nanoTime() - start).toMillis() + "ms."
+                    + (cold.isEmpty() ? "" : " Not warmed up: " + cold));
+            readiness.complete(Set.copyOf(warmed));
+        });
+    }
+
+    /**
+     * Calls every warm-up method of the dependency until it reached its iterations or its budget. Returns whether the
+     * dependency is warmed up, which is not the case if a method failed or the warm-up timeout stopped it.
+     */
+    private boolean warmupDependency(Dependency dependency, long deadline) {
+        Object object = objectCache.get(dependency.getClazz());
+        if (object == null) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        DependencyFactory<Object> factory = (DependencyFactory<Object>) dependency.getFactory();
+        for (Dependency.WarmupMethod warmupMethod : dependency.getWarmupMethods()) {
+            long start = startStep(dependency.getClazz().getName(), BeanStep.WARMUP, warmupMethod.getName());
+            long budget = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmupMethod.getBudgetMs());
+            try {
+                MethodHandle handle = warmupMethod.getHandle();
+                Method method = warmupMethod.getMethod();
+                if (handle == null && method != null) {
+                    method.setAccessible(true);
+                }
+                int iterations = 0;
+                while (iterations < warmupMethod.getIterations() && System.nanoTime() - Math.min(budget, deadline) < 0) {
+                    if (handle != null) {
+                        handle.invokeExact(object);
+                    } else if (factory != null && factory.run(object, warmupMethod.getName())) {
+                        //Run by the generated factory
+                    } else if (method != null) {
+                        method.invoke(object);
+                    } else {
+                        throw new IllegalStateException("The method is neither run by the factory nor known reflectively");
+                    }
+                    iterations++;
+                }
+                if (iterations < warmupMethod.getIterations() && deadline - budget < 0) {
+                    return false;
+                }
+            } catch (Throwable e) {
+                Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+                log.severe("Failed to warm up method " + warmupMethod.getName() + " in class " + dependency.getClazz().getName() + " with Exception: " + cause);
+                return false;
+            } finally {
+                stepFinished(dependency.getClazz().getName(), BeanStep.WARMUP, warmupMethod.getName(), start);
+            }
+        }
+        return true;
+    }
+
+    private void awaitAsyncMethods() {
+        long deadline = System.nanoTime() + asyncTimeout.toNanos();
+        List<String> pending = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<Void>> entry : new ArrayList<>(asyncMethods.entrySet())) {
+            try {
+                entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                pending.add(entry.getKey());
+            } catch (ExecutionException e) {
+                //Already logged by runMethod
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.severe("Interrupted while waiting for async methods.");
+                return;
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            log.warning("Async methods did not finish within " + asyncTimeout.toMillis() + "ms and are still running: " + pending);
+        }
+    }
+
+    /**
+     * Sets the strategy of the executor used to load classes, create dependencies in parallel and run async methods.
+     * The executor is shut down after {@link #init()}. Has to be called before {@link #init()}.
+     *
+     * @param strategy {@link ExecutorStrategy} The strategy
+     */
+    public void setExecutorStrategy(ExecutorStrategy strategy) {
+        replaceExecutor(strategy.createExecutorService(), true);
+        executorStrategy = strategy;
+    }
+
+    /**
+     * Sets a custom executor used to load classes, create dependencies in parallel and run async methods.
+     * The executor is owned by the caller and is never shut down by the DependencyManager.
+     * Has to be called before {@link #init()}.
+     *
+     * @param executorService {@link ExecutorService} The executor
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        replaceExecutor(executorService, false);
+        executorStrategy = null;
+    }
+
+    private void replaceExecutor(ExecutorService executorService, boolean ownsExecutor) {
+        if (this.ownsExecutor) {
+            this.executorService.shutdown();
+        }
+        this.executorService = executorService;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Sets how long {@link #init()} waits for async {@link AutoRun} methods and for
+     * {@link me.alex.dpl.annotation.Provided} dependencies that were not added yet. Methods still running afterwards are
+     * logged and keep running. Defaults to 30 seconds.
+     *
+     * @param asyncTimeout {@link Duration} The timeout
+     */
+    public void setAsyncTimeout(Duration asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    /**
+     * Sets how long {@link #shutdown()} waits for the {@link AutoClose} methods of a single dependency. The
+     * dependencies it depends on are closed afterwards anyway. Defaults to 10 seconds.
+     *
+     * @param closeTimeout {@link Duration} The timeout per dependency
+     */
+    public void setCloseTimeout(Duration closeTimeout) {
+        this.closeTimeout = closeTimeout;
+    }
+
+    /**
+     * Sets how long the {@link Warmup} methods may run in total before readiness is declared. Methods still running
+     * then stop after their current iteration. Defaults to 10 seconds. Has to be called before {@link #init()}.
+     *
+     * @param warmupTimeout {@link Duration} The timeout of the warm-up
+     */
+    public void setWarmupTimeout(Duration warmupTimeout) {
+        this.warmupTimeout = warmupTimeout;
+    }
+
+    /**
+     * Sets how many classes are warmed up at the same time on the executor. Defaults to the number of cores.
+     * Has to be called before {@link #init()}.
+     *
+     * @param warmupParallelism The number of threads running {@link Warmup} methods
+     */
+    public void setWarmupParallelism(int warmupParallelism) {
+        this.warmupParallelism = warmupParallelism;
+    }
+
+    /**
+     * Returns a future that is completed once init is done and all {@link Warmup} methods finished or the warm-up
+     * timeout was reached. It is completed with the classes that were warmed up, classes whose warm-up failed or
+     * was stopped by the timeout are missing. If init fails, it is completed with the exception of init.
+     *
+     * @return {@link CompletableFuture} The readiness of this DependencyManager
+     */
+    public CompletableFuture<Set<Class<?>>> getReadiness() {
+        return readiness;
+    }
+
+    /**
+     * Enables or disables parallel instantiation. When enabled, every dependency is created on the executor as soon as
+     * all of its constructor parameters exist, so independent constructors run at the same time. When more
+     * dependencies are ready than threads are free, the one with the longest chain of dependencies waiting for it
+     * starts first, weighted by the times recorded by {@link #setPlanCache(Path)}.
+     * Has to be called before {@link #init()}.
+     *
+     * @param parallelInit Whether dependencies should be created in parallel
+     */
+    public void setParallelInit(boolean parallelInit) {
+        this.parallelInit = parallelInit;
+    }
+
+    /**
+     * Enables or disables lazy instantiation for every dependency. When enabled, a dependency is created the first time
+     * it is requested with {@link #getDependency(Class)} or needed by another dependency, just like classes annotated
+     * with {@link Lazy}. Has to be called before {@link #init()}.
+     *
+     * @param lazyInit Whether all dependencies should be created lazily
+     */
+    public void setLazyInit(boolean lazyInit) {
+        this.lazyInit = lazyInit;
+    }
+
+    /**
+     * Enables or disables the phased {@link AutoRun} scheduler. When enabled, all methods with the same priority form
+     * a phase across all classes, and phases run in ascending priority. Within a phase, the methods of a class run
+     * on the executor as soon as the methods of the classes it depends on are done, so independent classes run in
+     * parallel. Async methods do not hold back the next phase. Has to be called before {@link #init()}.
+     *
+     * @param phasedAutoRun Whether the phased scheduler should be used
+     */
+    public void setPhasedAutoRun(boolean phasedAutoRun) {
+        this.phasedAutoRun = phasedAutoRun;
+    }
+
+    /**
+     * Keeps the resolved startup plan in the given file. The next start on the same classpath reads the plan instead of
+     * reading and merging the indexes, and skips looking up generated factories that do not exist. The plan also keeps
+     * how long every dependency took to start. It is saved at the end of every init and is only used while the index
+     * files and the indexed classes are unchanged. Has to be called before {@link #init()}.
+     *
+     * @param file {@link Path} The cache file, created if it does not exist
+     */
+    public void setPlanCache(Path file) {
+        if (planCache != null) {
+            startupListeners.remove(planCache);
+        }
+        planCache = new PlanCache(file);
+        startupListeners.add(planCache);
+    }
+
+    /**
+     * Adds a listener receiving the timings of every phase of init and every step of every dependency.
+     * Without listeners, nothing is measured. Has to be called before {@link #init()}.
+     *
+     * @param listener {@link StartupListener} The listener
+     */
+    public void addStartupListener(StartupListener listener) {
+        startupListeners.add(listener);
+    }
+
+    //Returns 0 if nobody listens, so the steps are not measured
+    private long startTiming() {
+        return startupListeners.isEmpty() ? 0 : System.nanoTime();
+    }
+
+    private long startPhase(StartupPhase phase) {
+        long start = startTiming();
+        if (start != 0) {
+            startupListeners.forEach(listener -> listener.onPhaseStarted(phase));
+        }
+        return start;
+    }
+
+    private void phaseFinished(StartupPhase phase, long start) {
+        if (start != 0) {
+            long duration = System.nanoTime() - start;
+            startupListeners.forEach(listener -> listener.onPhase(phase, start, duration));
+        }
+    }
+
+    private long startStep(String className, BeanStep step, @Nullable String method) {
+        long start = startTiming();
+        if (start != 0) {
+            startupListeners.forEach(listener -> listener.onBeanStepStarted(className, step, method));
+        }
+        return start;
+    }
+
+    private void stepFinished(String className, BeanStep step, @Nullable String method, long start) {
+        if (start != 0) {
+            long duration = System.nanoTime() - start;
+            Thread thread = Thread.currentThread();
+            startupListeners.forEach(listener -> listener.onBeanStep(className, step, method, start, duration, thread));
+        }
+    }
+
+    /**
+     * Adds a standalone class to the DependencyManager.
+     * <p>
+     * Classes marked as {@link me.alex.dpl.annotation.Provided} may also be added while {@link #init()} runs on another
+     * thread. Only the dependencies needing them wait for them, everything else is created in the meantime.
+     *
+     * @param obj {@link Object} Any object
+     */
+    public void addDependency(Object obj) {
+        if (objectCache.putIfAbsent(obj.getClass(), obj) == null) {
+            bind(obj.getClass());
+            markReady(obj);
+            Set<Class<?>> types = new LinkedHashSet<>();
+            collectTypes(obj.getClass(), types);
+            Registry frozen = registry;
+            if (frozen != null) {
+                //Only the lookups of the new class and its supertypes can change, all others stay cached
+                frozen.invalidate(types);
+            }
+            if (!providedDependencies.isEmpty()) {
+                for (Class<?> type : types) {
+                    CompletableFuture<Object> provided = providedDependencies.get(type);
+                    if (provided != null) {
+                        provided.complete(obj);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers a JVM shutdown hook calling {@link #shutdown()}.
+     */
+    public void registerShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "DependencyManager-shutdown"));
+    }
+
+    /**
+     * Closes all dependencies created by this DependencyManager. Dependencies added with {@link #addDependency(Object)}
+     * are owned by the caller and are not closed. Scopes have to be closed on their own.
+     * <p>
+     * A dependency is closed after all dependencies depending on it, so dependencies without a path between them are
+     * closed in parallel. Only the first call closes anything.
+     */
+    public void shutdown() {
+        if (!init.get() || shutdown.getAndSet(true)) {
+            return;
+        }
+        long start = System.nanoTime();
+        closeDependencies(closePlan, objectCache);
+        registry = null;
+        if (ownsExecutor) {
+            executorService.shutdown();
+        }
+        log.info("Closed all dependencies in " + Duration.ofNanos(System.nanoTime() - start).toMillis() + "ms.");
+    }
+
+    /**
+     * Closes the dependencies in reverse load order. Every dependency is closed on its own thread as soon as all
+     * dependencies depending on it are closed or timed out.
+     */
+    void closeDependencies(List<Dependency> dependencies, Map<Class<?>, Object> objects) {
+        //Each class -> the classes depending on it, which have to be closed first
+        Map<Class<?>, List<Class<?>>> dependents = new HashMap<>();
+        for (Dependency dependency : dependencies) {
+            for (Class<?> bound : getBoundDependencies(dependency, true)) {
+                dependents.computeIfAbsent(bound, key -> new ArrayList<>()).add(dependency.getClazz());
+            }
+        }
+
+        ExecutorService closeExecutor = getCloseExecutor();
+        Map<Class<?>, CompletableFuture<Void>> closed = new HashMap<>();
+        for (int i = dependencies.size() - 1; i >= 0; i--) {
+            Dependency dependency = dependencies.get(i);
+            CompletableFuture<?>[] before = dependents.getOrDefault(dependency.getClazz(), List.of()).stream()
+                    .map(closed::get)
+                    .filter(Objects::nonNull)
+                    .toArray(CompletableFuture[]::new);
+            Object object = objects.get(dependency.getClazz());
+            if (object == null) {
+                //Lazy dependencies that were never created pass the ordering on
+                closed.put(dependency.getClazz(), CompletableFuture.allOf(before));
+                continue;
+            }
+
+            closed.put(dependency.getClazz(), CompletableFuture.allOf(before)
+                    .thenCompose(unused -> CompletableFuture.runAsync(() -> closeDependency(dependency, object), closeExecutor)
+                            .orTimeout(closeTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        if (cause instanceof TimeoutException) {
+                            log.warning("Dependency " + dependency.getClazz().getName() + " did not close within " + closeTimeout.toMillis() + "ms.");
+                        } else {
+                            log.severe("Failed to close dependency " + dependency.getClazz().getName() + " with Exception: " + cause);
+                        }
+                        return null;
+                    }));
+        }
+        //Timed out methods keep running on the close executor
+        CompletableFuture.allOf(closed.values().toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Returns the executor closing the dependencies of this DependencyManager and all of its scopes. A caller owned
+     * executor is used directly, otherwise one blocking executor of the configured strategy is created on the first
+     * close. It is never shut down, its threads end on their own once they are idle.
+     */
+    private ExecutorService getCloseExecutor() {
+        ExecutorStrategy strategy = executorStrategy;
+        if (strategy == null) {
+            return executorService;
+        }
+        ExecutorService executor = closeExecutor;
+        if (executor == null) {
+            synchronized (closeLock) {
+                executor = closeExecutor;
+                if (executor == null) {
+                    executor = strategy.createBlockingExecutorService();
+                    closeExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private void closeDependency(Dependency dependency, Object object) {
+        @SuppressWarnings("unchecked")
+        DependencyFactory<Object> factory = (DependencyFactory<Object>) dependency.getFactory();
+        try {
+            if (factory != null && factory.close(object)) {
+                return;
+            }
+
+            for (Dependency.CloseMethod closeMethod : dependency.getCloseMethods()) {
+                MethodHandle handle = closeMethod.getHandle();
+                Method method = closeMethod.getMethod();
+                if (handle != null) {
+                    handle.invokeExact(object);
+                } else if (method != null) {
+                    method.setAccessible(true);
+                    method.invoke(object);
+                } else {
+                    throw new IllegalStateException("Method " + closeMethod.getName() + " is neither closed by the factory nor known reflectively");
+                }
+            }
+            if (dependency.getCloseMethods().isEmpty() && object instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        } catch (Throwable e) {
+            Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+            throw new CompletionException(cause);
+        }
+    }
+
+    /**
+     * Registers the provided types the dependencies need, which were not added yet, so the dependencies can wait for
+     * them instead of failing.
+     */
+    private void expectProvided(List<String> typeNames, ClassLoader loader) {
+        for (String typeName : typeNames) {
+            Class<?> type;
+            try {
+                type = loadType(typeName, loader);
+            } catch (ClassNotFoundException e) {
+                log.severe("Failed to find provided class " + typeName);
+                continue;
+            }
+            if (getBoundClass(type, "") != null) {
+                continue;
+            }
+            CompletableFuture<Object> provided = new CompletableFuture<>();
+            if (providedDependencies.putIfAbsent(type, provided) != null) {
+                continue;
+            }
+            //All provided types share one deadline, waiting for a type that timed out fails at once
+            provided.orTimeout(asyncTimeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((obj, e) -> {
+                if (e instanceof TimeoutException) {
+                    log.severe("Provided dependency " + type.getName() + " was not added within " + asyncTimeout.toMillis() + "ms.");
+                }
+            });
+            //addDependency may have run between the check and the registration
+            Object obj = findDependency(type);
+            if (obj != null) {
+                provided.complete(obj);
+            }
+        }
+    }
+
+    /**
+     * Waits until all given provided types were added or the async timeout of init passed.
+     */
+    private void awaitProvided(Collection<Class<?>> types) {
+        for (Class<?> type : types) {
+            CompletableFuture<Object> provided = providedDependencies.get(type);
+            if (provided == null || provided.isDone()) {
+                continue;
+            }
+            try {
+                provided.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                //Timed out, logged once by expectProvided
+            }
+        }
+    }
+
+    /**
+     * Replaces the registry used by {@link #getDependency(Class)}. The registry resolves every type once through the
+     * bindings and then keeps the result on the type itself, so later lookups neither lock nor hash.
+     */
+    private void freeze() {
+        registry = new Registry(this);
+    }
+
+    /**
+     * Creates a new scope, which creates its own instance of every {@link Scoped} class and shares all other
+     * dependencies with this DependencyManager. The classes were already loaded, ordered and validated by
+     * {@link #init()}, so a scope only runs the constructors, injections and {@link AutoRun} methods of its classes.
+     *
+     * @param objects {@link Object} Objects only known to the scope, for example the tenant or request it belongs to.
+     *                They are looked up by their exact class.
+     * @return {@link DependencyScope} The new scope
+     * @throws IllegalStateException If the DependencyManager was not initialized yet or a scoped class can not be created
+     */
+    public DependencyScope createScope(Object... objects) {
+        if (!init.get()) {
+            throw new IllegalStateException("DependencyManager#createScope can only be called after init.");
+        }
+        return new DependencyScope(this, scopePlan, objects);
+    }
+
+    boolean isScoped(Class<?> clazz) {
+        return scopedDependencies.containsKey(clazz);
+    }
+
+    /**
+     * Gets a class from the {@link DependencyManager} cache. Returns null if the class is not found.
+     * An interface or superclass returns the only dependency implementing it.
+     * Lazy dependencies are created on the first call. After {@link #init()}, the result for every class is kept in a
+     * read-only registry, so repeated calls are lock-free.
+     *
+     * @param clazz The class to get
+     * @param <T>   The class type
+     * @return {@link T} The class
+     */
+    @Nullable
+    public <T> T getDependency(Class<T> clazz) {
+        Registry frozen = registry;
+        Object obj = frozen != null ? frozen.lookup(clazz) : findDependency(clazz);
+
+        if (obj == null) {
+            return null;
+        }
+
+        return clazz.cast(obj);
+    }
+
+    /**
+     * Gets the dependency with the given {@link Named} qualifier that is or implements the given class.
+     * Returns null if there is none or more than one. Lazy dependencies are created on the first call.
+     *
+     * @param clazz     The class to get
+     * @param qualifier The qualifier of the dependency
+     * @param <T>       The class type
+     * @return {@link T} The class
+     */
+    @Nullable
+    public <T> T getDependency(Class<T> clazz, String qualifier) {
+        Object obj = findDependency(clazz, qualifier);
+
+        if (obj == null) {
+            return null;
+        }
+
+        return clazz.cast(obj);
+    }
+
+    @Nullable
+    private Object findDependency(Class<?> clazz) {
+        return findDependency(clazz, "");
+    }
+
+    @Nullable
+    Object findDependency(Class<?> clazz, String qualifier) {
+        if (qualifier.isEmpty()) {
+            //Exact classes are the common case and never need the bindings
+            Object obj = objectCache.get(clazz);
+            if (obj != null) {
+                return obj;
+            }
+        }
+
+        Class<?> bound = getBoundClass(clazz, qualifier);
+        if (bound == null) {
+            return null;
+        }
+        if (bound == AMBIGUOUS) {
+            log.severe("Dependency " + clazz.getName() + (qualifier.isEmpty() ? "" : " named " + qualifier) + " is implemented by more than one class. Use @Named to choose one.");
+            return null;
+        }
+
+        Object obj = objectCache.get(bound);
+        if (obj == null && !lazyDependencies.isEmpty()) {
+            Dependency dependency = lazyDependencies.get(bound);
+            if (dependency != null) {
+                obj = createLazy(dependency);
+            }
+        }
+        return obj;
+    }
+
+    @Nullable
+    Class<?> getBoundClass(Class<?> type, String qualifier) {
+        Map<Class<?>, Class<?>> qualified = bindings.get(qualifier);
+        return qualified == null ? null : qualified.get(type);
+    }
+
+    /**
+     * Binds the class to itself and all of its supertypes, once without and once with its {@link Named} qualifier.
+     * The supertypes are walked once here, so lookups never have to scan the dependencies.
+     */
+    private void bind(Class<?> klass) {
+        Named named = klass.getAnnotation(Named.class);
+        Set<Class<?>> types = new LinkedHashSet<>();
+        collectTypes(klass, types);
+        for (Class<?> type : types) {
+            bind("", type, klass);
+            if (named != null) {
+                bind(named.value(), type, klass);
+            }
+        }
+    }
+
+    private void bind(String qualifier, Class<?> type, Class<?> klass) {
+        //A class always wins over the classes extending it, otherwise a type may only be bound once
+        bindings.computeIfAbsent(qualifier, key -> new ConcurrentHashMap<>())
+                .merge(type, klass, (old, current) -> old == type || current == type ? type : old == current ? old : AMBIGUOUS);
+    }
+
+    private void collectTypes(@Nullable Class<?> type, Set<Class<?>> types) {
+        if (type == null || type == Object.class || !types.add(type)) {
+            return;
+        }
+        collectTypes(type.getSuperclass(), types);
+        for (Class<?> anInterface : type.getInterfaces()) {
+            collectTypes(anInterface, types);
+        }
+    }
+
+    /**
+     * Returns the classes bound to the constructor parameters and, if requested, the injected fields of the dependency.
+     */
+    private List<Class<?>> getBoundDependencies(Dependency dependency, boolean includeFields) {
+        List<Class<?>> bound = new ArrayList<>();
+        List<Class<?>> parameters = dependency.getConstructorParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            //Deferred dependencies are resolved later and never have to be created first
+            if (!dependency.getParameterDeferred().get(i)) {
+                bound.add(getBoundOrProvided(parameters.get(i), dependency.getParameterQualifiers().get(i)));
+            }
+        }
+        if (includeFields) {
+            for (Dependency.InjectionField field : dependency.getInjectionFields()) {
+                if (!field.isDeferred()) {
+                    bound.add(getBoundOrProvided(field.getType(), field.getQualifier()));
+                }
+            }
+        }
+        bound.removeIf(Objects::isNull);
+        return bound;
+    }
+
+    /**
+     * Returns the class bound to the type or, if the type is provided but was not added yet, the type itself.
+     */
+    @Nullable
+    private Class<?> getBoundOrProvided(Class<?> type, String qualifier) {
+        Class<?> bound = getBoundClass(type, qualifier);
+        if (bound == null && providedDependencies.containsKey(type)) {
+            return type;
+        }
+        return bound;
+    }
+
+    @Nullable
+    private Object createLazy(Dependency dependency) {
+        //Dependencies are locked in load order, which is acyclic, so two lazy creations can not deadlock
+        synchronized (dependency) {
+            Object obj = objectCache.get(dependency.getClazz());
+            if (obj != null) {
+                return obj;
+            }
+
+            try {
+                obj = instantiate(dependency, resolver);
+                injectDependency(dependency, obj, resolver);
+            } catch (IllegalStateException e) {
+                log.severe("Failed to lazily create class " + dependency.getClazz().getName() + ". " + e.getMessage());
+                return null;
+            }
+
+            //Only publish fully injected instances
+            objectCache.put(dependency.getClazz(), obj);
+            Object created = obj;
+            runDependencyMethods(dependency, obj).thenRun(() -> markReady(created));
+            return obj;
+        }
+    }
+
+    private List<Dependency> fetchClasses(List<String> classNames, ClassLoader loader) {
+        //Loading and scanning a class happen in the same task, so there is only one barrier
+        List<Dependency> dependencies = fetchBatched(classNames, Function.identity(), className -> {
+            long start = startStep(className, BeanStep.LOAD_CLASS, null);
+            Class<?> klass;
+            try {
+                klass = loader.loadClass(className);
+            } catch (ClassNotFoundException e) {
+                log.info("Failed to find class " + className);
+                return null;
+            } finally {
+                stepFinished(className, BeanStep.LOAD_CLASS, null, start);
+            }
+            return processClass(klass);
+        });
+
+        Set<Class<?>> fetched = new HashSet<>();
+        dependencies.forEach(dependency -> fetched.add(dependency.getClazz()));
+        for (Dependency dependency : dependencies) {
+            List<Class<?>> errors = checkParameters(dependency.getClazz(), dependency.getConstructorParameters(), fetched);
+            if (!errors.isEmpty()) {
+                log.severe("Class " + dependency.getClazz().getName() + " has invalid dependencies: " + errors);
+            }
+        }
+        return dependencies;
+    }
+
+    List<Dependency> fetchIndexedClasses(DependencyIndex index, ClassLoader loader) {
+        PlanCache cache = planCache;
+        return fetchBatched(index.getEntries(), IndexEntry::getClassName, entry -> processEntry(entry, loader, cache == null || cache.hasFactory(entry.getClassName())));
+    }
+
+    /**
+     * Fetches the sources in one batch per core instead of one task per class. The calling thread works on the first
+     * batch itself and then waits once for the others. The dependencies keep the order of the sources.
+     * The class name of a source is only used to report a failed fetch.
+     */
+    private <T> List<Dependency> fetchBatched(List<T> sources, Function<T, String> className, Function<T, Dependency> fetcher) {
+        int size = sources.size();
+        Dependency[] fetched = new Dependency[size];
+        int batchSize = Math.max(1, (size + FETCH_BATCHES - 1) / FETCH_BATCHES);
+
+        List<Future<?>> batches = new ArrayList<>();
+        for (int from = batchSize; from < size; from += batchSize) {
+            int start = from;
+            int end = Math.min(size, from + batchSize);
+            batches.add(executorService.submit(() -> fetchBatch(sources, fetched, start, end, className, fetcher)));
+        }
+        fetchBatch(sources, fetched, 0, Math.min(size, batchSize), className, fetcher);
+
+        for (Future<?> batch : batches) {
+            try {
+                batch.get();
+            } catch (InterruptedException | ExecutionException e) {
+                log.log(Level.SEVERE, "Failed to fetch classes.", e);
+            }
+        }
+
+        List<Dependency> dependencies = new ArrayList<>(size);
+        for (Dependency dependency : fetched) {
+            if (dependency != null) {
+                dependencies.add(dependency);
+            }
+        }
+        dependencies.forEach(dependency -> bind(dependency.getClazz()));
+        return dependencies;
+    }
+
+    private <T> void fetchBatch(List<T> sources, Dependency[] fetched, int start, int end, Function<T, String> className,
+                                Function<T, Dependency> fetcher) {
+        for (int i = start; i < end; i++) {
+            try {
+                fetched[i] = fetcher.apply(sources.get(i));
+            } catch (RuntimeException e) {
+                //One broken class must not take the rest of its batch with it
+                log.log(Level.SEVERE, "Failed to fetch class " + className.apply(sources.get(i)) + ".", e);
+            }
+        }
+    }
+
+    /**
+     * Reads the binary dependency indexes written by the annotation processor. The indexes of all modules visible to
+     * the class loader are merged into one index in global load order. Merged indexes are cached by a fingerprint of
+     * the index files, so further DependencyManagers on the same classpath skip merging.
+     *
+     * @param loader The class loader to search the indexes in
+     * @return {@link DependencyIndex} The index or null if there is none
+     */
+    @Nullable
+    public DependencyIndex readIndex(ClassLoader loader) {
+        return readIndex(getResources(loader, Constants.INDEX_FILE));
+    }
+
+    /**
+     * Returns the index of the {@link #setPlanCache(Path) plan cache} if it is up to date, otherwise reads the index.
+     */
+    @Nullable
+    DependencyIndex readCachedIndex(ClassLoader loader) {
+        if (planCache == null) {
+            return readIndex(loader);
+        }
+        List<URL> urls = getResources(loader, Constants.INDEX_FILE);
+        DependencyIndex cached = urls.isEmpty() ? null : planCache.load(urls);
+        if (cached != null) {
+            log.info("Loaded startup plan with " + cached.getEntries().size() + " classes from cache.");
+            return cached;
+        }
+        return readIndex(urls);
+    }
+
+    @Nullable
+    private DependencyIndex readIndex(List<URL> urls) {
+        if (urls.isEmpty()) {
+            return null;
+        }
+        if (urls.size() == 1) {
+            return readIndex(urls.get(0));
+        }
+
+        String fingerprint = fingerprint(urls);
+        DependencyIndex merged = fingerprint != null ? MERGED_INDEXES.get(fingerprint) : null;
+        if (merged != null) {
+            return merged;
+        }
+        merged = mergeIndexes(urls);
+        if (fingerprint != null) {
+            MERGED_INDEXES.put(fingerprint, merged);
+        }
+        return merged;
+    }
+
+    /**
+     * Reads the given indexes and merges them into one index in global load order, without looking at the cache.
+     */
+    DependencyIndex mergeIndexes(List<URL> urls) {
+        List<DependencyIndex> indexes = new ArrayList<>(urls.size());
+        for (URL url : urls) {
+            DependencyIndex index = readIndex(url);
+            if (index != null) {
+                indexes.add(index);
+            }
+        }
+        DependencyIndex merged = DependencyIndex.merge(indexes);
+        log.info("Merged " + indexes.size() + " dependency indexes with " + merged.getEntries().size() + " classes.");
+        return merged;
+    }
+
+    /**
+     * Returns every resource with the given name, once per module, in class loader order.
+     */
+    private List<URL> getResources(ClassLoader loader, String name) {
+        Map<String, URL> urls = new LinkedHashMap<>();
+        try {
+            //Parent and child loaders may return the same resource, URL#equals would resolve hosts to compare them
+            for (URL url : Collections.list(loader.getResources(name))) {
+                urls.putIfAbsent(url.toExternalForm(), url);
+            }
+        } catch (IOException e) {
+            log.severe("Error while searching " + name + ": " + e.getMessage());
+        }
+        return List.copyOf(urls.values());
+    }
+
+    /**
+     * Fingerprints the index files by their location, size and modification time without reading them.
+     * Returns null if one of them is not a local file.
+     */
+    @Nullable
+    private String fingerprint(List<URL> urls) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (URL url : urls) {
+            try {
+                String stamp = PlanCache.stamp(url);
+                if (stamp == null) {
+                    return null;
+                }
+                fingerprint.append(stamp).append('\n');
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    @Nullable
+    private DependencyIndex readIndex(URL url) {
+        try {
+            ByteBuffer buffer;
+            if (url.getProtocol().equals("file")) {
+                try (FileChannel channel = FileChannel.open(Path.of(url.toURI()), StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            } else {
+                try (InputStream stream = url.openStream()) {
+                    buffer = ByteBuffer.wrap(stream.readAllBytes());
+                }
+            }
+            return DependencyIndex.read(buffer);
+        } catch (IOException | URISyntaxException e) {
+            log.severe("Error while reading dependency index file " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    void injectFields(List<Dependency> dependencies) {
+        for (Dependency dependency : dependencies) {
+            try {
+                injectDependency(dependency, objectCache.get(dependency.getClazz()), resolver);
+            } catch (IllegalStateException e) {
+                log.info(e.getMessage());
+                return;
+            }
+        }
+    }
+
+    void injectDependency(Dependency dependency, Object object, DependencyResolver resolver) {
+        long start = startStep(dependency.getClazz().getName(), BeanStep.INJECT_FIELDS, null);
+        try {
+            setFields(dependency, object, resolver);
+        } finally {
+            stepFinished(dependency.getClazz().getName(), BeanStep.INJECT_FIELDS, null, start);
+        }
+    }
 
-    //Non-Instantiable
-    private DependencyManager() {
+    private void setFields(Dependency dependency, Object object, DependencyResolver resolver) {
+        @SuppressWarnings("unchecked")
+        DependencyFactory<Object> factory = (DependencyFactory<Object>) dependency.getFactory();
+        if (factory != null) {
+            try {
+                factory.inject(object, resolver);
+            } catch (IllegalStateException e) {
+                throw new IllegalStateException("Failed to inject fields in class " + dependency.getClazz().getName() + ". " + e.getMessage() + ". Forgot to add a Dependency?", e);
+            }
+        }
+        for (Dependency.InjectionField injectionField : dependency.getInjectionFields()) {
+            String name = injectionField.getName();
+            if (factory != null && factory.getInjectedFields().contains(name)) {
+                continue;
+            }
+            Object fieldObj;
+            try {
+                fieldObj = injectionField.isDeferred()
+                        ? resolver.provider(injectionField.getType(), injectionField.getQualifier())
+                        : resolver.resolve(injectionField.getType(), injectionField.getQualifier());
+            } catch (IllegalStateException e) {
+                throw new IllegalStateException("Failed to inject field " + name + " in class " + dependency.getClazz().getName() + ". Forgot to add a Dependency?", e);
+            }
+            try {
+                MethodHandle setter = injectionField.getSetter();
+                Field field = injectionField.getField();
+                if (setter != null) {
+                    setter.invokeExact(object, fieldObj);
+                } else if (field != null) {
+                    field.setAccessible(true);
+                    field.set(object, fieldObj);
+                } else {
+                    throw new IllegalStateException("The field is neither set by the factory nor known reflectively");
+                }
+            } catch (Throwable e) {
+                throw new IllegalStateException("Failed to inject field " + name + " in class " + dependency.getClazz().getName(), e);
+            }
+        }
     }
 
-    /**
-     * Returns the DependencyManager instance
-     *
-     * @return {@link DependencyManager}
-     */
-    public synchronized static DependencyManager getDependencyManager() {
-        if (dependencyManager == null) {
-            dependencyManager = new DependencyManager();
+    public List<Class<?>> readClasses(ClassLoader loader) {
+        List<Class<?>> classes = new ArrayList<>();
+        for (String entry : readClassNames(loader)) {
+            try {
+                classes.add(loader.loadClass(entry));
+            } catch (ClassNotFoundException e) {
+                log.info("Failed to find class " + entry);
+            }
         }
-        return dependencyManager;
+        return classes;
     }
 
-    /**
-     * Initializes the DependencyManager and loads all dependencies. This method can only be called once.
-     */
-    public synchronized void init() {
-        if (init.compareAndExchange(false, true)) {
-            log.log(Level.SEVERE, "DependencyManager#init can only be called once.");
+    private List<String> readClassNames(ClassLoader loader) {
+        List<URL> urls = getResources(loader, Constants.ANNOTATION_STORAGE_FILE);
+        if (urls.isEmpty()) {
+            log.info("Failed to find indexed class file.");
+            return List.of();
+        }
+        //Every file is sorted on its own, the modules are read in class loader order
+        Set<String> foundEntries = new LinkedHashSet<>();
+        for (URL url : urls) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8), 8192 / 2)) {
+                while (reader.ready()) {
+                    String line = reader.readLine();
+                    foundEntries.add(line);
+                }
+            } catch (IOException e) {
+                log.info("Error while reading indexed class file " + url + ".");
+            }
         }
+        return List.copyOf(foundEntries);
+    }
 
-        //Start of loading
-        Instant now = Instant.now();
-        //The classes are already in the right order from the Annotation processor
-        List<Class<?>> indexedClasses = readClasses(this.getClass().getClassLoader());
-        List<Dependency> fetchedClasses = fetchClasses(indexedClasses);
+    void runMethods(List<Dependency> dependencies) {
+        if (phasedAutoRun) {
+            runMethodsPhased(dependencies);
+            return;
+        }
 
-        createInstances(fetchedClasses);
-        injectFields(fetchedClasses);
-        runMethods(fetchedClasses);
+        for (Dependency dependency : dependencies) {
+            Object object = objectCache.get(dependency.getClazz());
+            runDependencyMethods(dependency, object).thenRun(() -> markReady(object));
+        }
+    }
 
-        //End of loading
-        executorService.shutdown();
+    private void runMethodsPhased(List<Dependency> dependencies) {
+        //priority -> class -> methods of that priority
+        SortedMap<Integer, Map<Dependency, List<Dependency.AutoRunMethod>>> phases = new TreeMap<>();
+        //The async methods of every class over all phases
+        Map<Dependency, List<CompletableFuture<Void>>> asyncRuns = new ConcurrentHashMap<>();
+        for (Dependency dependency : dependencies) {
+            for (Dependency.AutoRunMethod autoRunMethod : dependency.getInjectionMethods()) {
+                phases.computeIfAbsent(autoRunMethod.getPriority(), priority -> new HashMap<>())
+                        .computeIfAbsent(dependency, key -> new ArrayList<>())
+                        .add(autoRunMethod);
+            }
+        }
 
-        try {
-            boolean t = executorService.awaitTermination(1, TimeUnit.SECONDS);
-            if (!t) {
-                log.severe("Failed to await termination of executor service.");
+        for (Map<Dependency, List<Dependency.AutoRunMethod>> phase : phases.values()) {
+            Map<Class<?>, CompletableFuture<Void>> done = new HashMap<>();
+            for (Dependency dependency : dependencies) {
+                CompletableFuture<?>[] before = getBoundDependencies(dependency, true).stream()
+                        .map(done::get)
+                        .filter(Objects::nonNull)
+                        .toArray(CompletableFuture[]::new);
+
+                List<Dependency.AutoRunMethod> methods = phase.get(dependency);
+                Object object = objectCache.get(dependency.getClazz());
+                if (methods == null || object == null) {
+                    if (methods != null) {
+                        log.severe("Failed to run methods in class " + dependency.getClazz().getName() + " because the object is null");
+                    }
+                    //Passes the ordering on to the classes depending on this one
+                    done.put(dependency.getClazz(), CompletableFuture.allOf(before));
+                    continue;
+                }
+
+                done.put(dependency.getClazz(), CompletableFuture.allOf(before).thenRunAsync(() -> {
+                    //The methods of one class never run concurrently with each other
+                    for (Dependency.AutoRunMethod autoRunMethod : methods) {
+                        CompletableFuture<Void> asyncRun = runDependencyMethod(dependency, autoRunMethod, object);
+                        if (asyncRun != null) {
+                            asyncRuns.computeIfAbsent(dependency, key -> new CopyOnWriteArrayList<>()).add(asyncRun);
+                        }
+                    }
+                }, executorService));
             }
-        } catch (InterruptedException e) {
-            log.severe("Failed to await termination of executor service.");
+            CompletableFuture.allOf(done.values().toArray(CompletableFuture[]::new)).join();
         }
 
-        log.info("Success! Finished loading in " + (Instant.now().toEpochMilli() - now.toEpochMilli()) + "ms. With " + fetchedClasses.size() + " classes.");
+        for (Dependency dependency : dependencies) {
+            Object object = objectCache.get(dependency.getClazz());
+            if (object != null) {
+                CompletableFuture.allOf(asyncRuns.getOrDefault(dependency, List.of()).toArray(CompletableFuture[]::new))
+                        .thenRun(() -> markReady(object));
+            }
+        }
     }
 
     /**
-     * Adds a standalone class to the DependencyManager.
-     *
-     * @param obj {@link Object} Any object
+     * Runs the AutoRun methods of the dependency and returns a future completed once its async methods finished.
+     * The future never completes if the object is null.
      */
-    public void addDependency(Object obj) {
-        objectCache.putIfAbsent(obj.getClass(), obj);
+    CompletableFuture<Void> runDependencyMethods(Dependency dependency, Object object) {
+        if (object == null) {
+            log.severe("Failed to run methods in class " + dependency.getClazz().getName() + " because the object is null");
+            return new CompletableFuture<>();
+        }
+        List<CompletableFuture<Void>> asyncRuns = new ArrayList<>();
+        for (Dependency.AutoRunMethod autoRunMethod : dependency.getInjectionMethods()) {
+            CompletableFuture<Void> asyncRun = runDependencyMethod(dependency, autoRunMethod, object);
+            if (asyncRun != null) {
+                asyncRuns.add(asyncRun);
+            }
+        }
+        return CompletableFuture.allOf(asyncRuns.toArray(CompletableFuture[]::new));
     }
 
-    /**
-     * Gets a class from the {@link DependencyManager} cache. Returns null if the class is not found.
-     *
-     * @param clazz The class to get
-     * @param <T>   The class type
-     * @return {@link T} The class
-     */
+    //Returns the future of an async method or null if the method already ran
     @Nullable
-    public <T> T getDependency(Class<T> clazz) {
-        Object obj = objectCache.get(clazz);
-
-        if (obj == null) {
+    private CompletableFuture<Void> runDependencyMethod(Dependency dependency, Dependency.AutoRunMethod autoRunMethod, Object object) {
+        if (!autoRunMethod.isAsync()) {
+            runMethod(dependency, autoRunMethod, object);
             return null;
         }
 
-        return clazz.cast(obj);
+        String name = dependency.getClazz().getName() + "#" + autoRunMethod.getName();
+        CompletableFuture<Void> future = CompletableFuture.runAsync(() -> runMethod(dependency, autoRunMethod, object), executorService);
+        //Only running methods are tracked
+        asyncMethods.put(name, future);
+        future.whenComplete((unused, throwable) -> asyncMethods.remove(name, future));
+        return future;
     }
 
-    private List<Dependency> fetchClasses(List<Class<?>> classesToIndex) {
-        List<Dependency> dependencies = new ArrayList<>();
-        List<Future<Dependency>> futures = classesToIndex.stream().map(aClass -> executorService.submit(() -> processClass(aClass))).toList();
-
-        for (Future<Dependency> future : futures) {
-            try {
-                dependencies.add(future.get());
-            } catch (InterruptedException | ExecutionException e) {
-                log.severe("Failed to fetch class.");
+    private void runMethod(Dependency dependency, Dependency.AutoRunMethod autoRunMethod, Object object) {
+        Method method = autoRunMethod.getMethod();
+        @SuppressWarnings("unchecked")
+        DependencyFactory<Object> factory = (DependencyFactory<Object>) dependency.getFactory();
+        long start = startStep(object.getClass().getName(), BeanStep.RUN_METHOD, autoRunMethod.getName());
+        try {
+            MethodHandle handle = autoRunMethod.getHandle();
+            if (handle != null) {
+                handle.invokeExact(object);
+            } else if (factory != null && factory.run(object, autoRunMethod.getName())) {
+                //Run by the generated factory
+            } else if (method != null) {
+                method.setAccessible(true);
+                method.invoke(object);
+            } else {
+                throw new IllegalStateException("The method is neither run by the factory nor known reflectively");
             }
+        } catch (Throwable e) {
+            Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+            log.severe("Failed to run method " + autoRunMethod.getName() + " in class " + object.getClass().getName() + " with Exception: " + cause);
+        } finally {
+            stepFinished(object.getClass().getName(), BeanStep.RUN_METHOD, autoRunMethod.getName(), start);
         }
-
-        return dependencies;
     }
 
-    private void injectFields(List<Dependency> dependencies) {
+    void createInstances(List<Dependency> dependencies) {
+        if (parallelInit) {
+            createInstancesParallel(dependencies);
+            return;
+        }
+
         for (Dependency dependency : dependencies) {
-            Object object = objectCache.get(dependency.getClazz());
-            for (Field field : dependency.getInjectionFields()) {
-                Object fieldObj = objectCache.get(field.getType());
-                if (fieldObj == null) {
-                    log.info("Failed to inject field" + field.getName() + " in class " + dependency.getClazz().getName() + ". Forgot to add a Dependency?");
-                    return;
-                }
-                try {
-                    field.setAccessible(true);
-                    field.set(object, fieldObj);
-                } catch (IllegalAccessException e) {
-                    log.info("Failed to inject field " + field.getName() + " in class " + dependency.getClazz().getName());
-                    return;
-                }
+            if (lazyDependencies.containsKey(dependency.getClazz())) {
+                continue;
+            }
+            awaitProvided(getBoundDependencies(dependency, false));
+            try {
+                createDependency(dependency);
+            } catch (IllegalStateException e) {
+                //Only the dependencies needing this one fail as well, like in parallel
+                log.severe(e.getMessage());
             }
         }
     }
 
-    public List<Class<?>> readClasses(ClassLoader loader) {
-        List<String> foundEntries = new ArrayList<>();
-        InputStream stream = getClass().getClassLoader().getResourceAsStream(Constants.ANNOTATION_STORAGE_FILE);
-        if (stream == null) {
-            log.info("Failed to find indexed class file.");
-            return List.of();
-        }
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 8192 / 2)) {
-            while (reader.ready()) {
-                String line = reader.readLine();
-                foundEntries.add(line);
+    private void createInstancesParallel(List<Dependency> dependencies) {
+        //Each dependency is scheduled as soon as all of its constructor parameters exist.
+        //The list is sorted, so the futures of the parameters are always created first.
+        Map<Class<?>, CompletableFuture<Void>> created = new HashMap<>();
+        //Ready dependencies wait here, every free thread takes the one with the longest remaining chain
+        Map<Class<?>, Long> ranks = getRanks(dependencies);
+        PriorityBlockingQueue<RankedTask> ready = new PriorityBlockingQueue<>(Math.max(1, dependencies.size()));
+        List<RankedTask> roots = new ArrayList<>();
+        //Provided types that were not added yet are nodes of the graph as well, only their dependents wait for them
+        providedDependencies.forEach((type, provided) -> created.put(type, provided.<Void>thenApply(obj -> null)
+                .exceptionally(e -> null)));
+        for (Dependency dependency : dependencies) {
+            if (lazyDependencies.containsKey(dependency.getClazz())) {
+                //A lazy dependency is created by the first dependency needing it, which has to wait for all of its inputs
+                CompletableFuture<?>[] inputs = getBoundDependencies(dependency, true).stream()
+                        .map(created::get)
+                        .filter(Objects::nonNull)
+                        .toArray(CompletableFuture[]::new);
+                created.put(dependency.getClazz(), CompletableFuture.allOf(inputs));
+                continue;
             }
-        } catch (IOException e) {
-            log.info("Error while reading indexed class file.");
-        }
 
-        List<Class<?>> classes = new ArrayList<>();
-        List<Future<Class<?>>> futures = new ArrayList<>();
+            CompletableFuture<?>[] parameters = getBoundDependencies(dependency, false).stream()
+                    .map(created::get)
+                    .filter(Objects::nonNull)
+                    .toArray(CompletableFuture[]::new);
 
-        for (String entry : foundEntries) {
-            futures.add(executorService.submit(() -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            RankedTask task = new RankedTask(ranks.get(dependency.getClazz()), future, () -> {
                 try {
-                    return loader.loadClass(entry);
-                } catch (ClassNotFoundException e) {
-                    log.info("Failed to find class " + entry);
-                    return null;
+                    createDependency(dependency);
+                } catch (IllegalStateException e) {
+                    log.severe(e.getMessage());
+                    throw e;
                 }
-            }));
-        }
-
-        for (Future<Class<?>> future : futures) {
-            try {
-                Class<?> clazz = future.get();
-
-                if (clazz == null) {
-                    continue;
+            });
+            created.put(dependency.getClazz(), future);
+            if (parameters.length == 0) {
+                roots.add(task);
+                continue;
+            }
+            CompletableFuture.allOf(parameters).whenComplete((unused, throwable) -> {
+                if (throwable != null) {
+                    future.completeExceptionally(throwable);
+                } else {
+                    schedule(ready, task);
                 }
+            });
+        }
+        //All roots are queued before the first one starts, so the slowest chains start first
+        ready.addAll(roots);
+        roots.forEach(task -> dispatch(ready));
 
-                classes.add(clazz);
-            } catch (InterruptedException | ExecutionException e) {
-                log.severe("Failed to get class from future.");
+        try {
+            CompletableFuture.allOf(created.values().toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            //Missing dependencies are already logged, anything else is a failed constructor
+            if (!(e.getCause() instanceof IllegalStateException)) {
+                throw e;
             }
         }
+    }
 
+    private void schedule(PriorityBlockingQueue<RankedTask> ready, RankedTask task) {
+        ready.add(task);
+        dispatch(ready);
+    }
 
-        return classes;
+    private void dispatch(PriorityBlockingQueue<RankedTask> ready) {
+        try {
+            //One poll per queued task, so the queue is never empty when a worker polls it
+            executorService.execute(() -> ready.poll().run());
+        } catch (RejectedExecutionException e) {
+            ready.poll().future.completeExceptionally(e);
+        }
     }
 
-    private void runMethods(List<Dependency> dependencies) {
+    /**
+     * Ranks every dependency by its own cost plus the costliest chain of dependencies waiting for its instance, like
+     * the upward rank of HEFT. Costs are the times measured by the plan cache in previous starts. Unknown costs count as
+     * the average known cost, so without a plan cache the rank is the length of the longest chain.
+     */
+    private Map<Class<?>, Long> getRanks(List<Dependency> dependencies) {
+        PlanCache cache = planCache;
+        Map<Class<?>, Long> costs = new HashMap<>();
+        long total = 0;
         for (Dependency dependency : dependencies) {
-            Object object = objectCache.get(dependency.getClazz());
-            if (object == null) {
-                log.severe("Failed to run methods in class " + dependency.getClazz().getName() + " because the object is null");
+            long cost = cache != null ? cache.getCost(dependency.getClazz().getName()) : -1;
+            if (cost >= 0) {
+                costs.put(dependency.getClazz(), cost);
+                total += cost;
             }
-            for (Dependency.AutoRunMethod autoRunMethod : dependency.getInjectionMethods()) {
-                if (autoRunMethod.isAsync()) {
-                    executorService.submit(() -> runMethod(autoRunMethod, object));
-                } else {
-                    runMethod(autoRunMethod, object);
-                }
+        }
+        long unknown = costs.isEmpty() ? 1 : Math.max(1, total / costs.size());
+
+        //In reverse load order, every dependency comes after all dependencies waiting for it
+        Map<Class<?>, Long> ranks = new HashMap<>();
+        Map<Class<?>, Long> waiting = new HashMap<>();
+        for (int i = dependencies.size() - 1; i >= 0; i--) {
+            Dependency dependency = dependencies.get(i);
+            long rank = costs.getOrDefault(dependency.getClazz(), unknown) + waiting.getOrDefault(dependency.getClazz(), 0L);
+            ranks.put(dependency.getClazz(), rank);
+            for (Class<?> parameter : getBoundDependencies(dependency, false)) {
+                waiting.merge(parameter, rank, Math::max);
             }
         }
+        return ranks;
     }
 
-    private void runMethod(Dependency.AutoRunMethod autoRunMethod, Object object) {
-        Method method = autoRunMethod.getMethod();
+    private void createDependency(Dependency dependency) {
+        if (objectCache.containsKey(dependency.getClazz())) {
+            log.warning("Dependency " + dependency.getClazz().getName() + " already exists in cache. Skipping.");
+            return;
+        }
+
+        objectCache.put(dependency.getClazz(), instantiate(dependency, resolver));
+    }
+
+    Object instantiate(Dependency dependency, DependencyResolver resolver) {
+        long start = startStep(dependency.getClazz().getName(), BeanStep.CREATE_INSTANCE, null);
         try {
-            method.setAccessible(true);
-            method.invoke(object);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            log.severe("Failed to run method " + method.getName() + " in class " + object.getClass().getName() + " with Exception: " + e.getMessage());
+            return construct(dependency, resolver);
+        } finally {
+            stepFinished(dependency.getClazz().getName(), BeanStep.CREATE_INSTANCE, null, start);
         }
     }
 
-    private void createInstances(List<Dependency> dependencies) {
-        for (Dependency dependency : dependencies) {
-            if (objectCache.containsKey(dependency.getClazz())) {
-                log.warning("Dependency " + dependency.getClazz().getName() + " already exists in cache. Skipping.");
-                continue;
+    private Object construct(Dependency dependency, DependencyResolver resolver) {
+        if (dependency.getFactory() != null) {
+            try {
+                return dependency.getFactory().create(resolver);
+            } catch (IllegalStateException e) {
+                throw new IllegalStateException(e.getMessage() + " for class " + dependency.getClazz().getName(), e);
             }
+        }
 
-            Object[] parameters = new Object[dependency.getConstructorParameters().size()];
-            for (int i = 0; i < parameters.length; i++) {
-                Class<?> depClass = dependency.getConstructorParameters().get(i);
-                Object para = objectCache.get(depClass);
-                if (para == null) {
-                    log.severe("Failed to find dependency " + depClass.getName() + " for class " + dependency.getClazz().getName());
-                    return;
-                }
-                parameters[i] = para;
+        Object[] parameters = new Object[dependency.getConstructorParameters().size()];
+        for (int i = 0; i < parameters.length; i++) {
+            Class<?> depClass = dependency.getConstructorParameters().get(i);
+            String qualifier = dependency.getParameterQualifiers().get(i);
+            try {
+                parameters[i] = dependency.getParameterDeferred().get(i) ? resolver.provider(depClass, qualifier) : resolver.resolve(depClass, qualifier);
+            } catch (IllegalStateException e) {
+                throw new IllegalStateException(e.getMessage() + " for class " + dependency.getClazz().getName(), e);
             }
-            Object instance = createInstance(dependency, parameters);
-            objectCache.put(dependency.getClazz(), instance);
         }
+        return createInstance(dependency, parameters);
     }
 
     private Object createInstance(Dependency dependency, Object... parameters) {
@@ -254,7 +1711,18 @@ public class DependencyManager {
         }
     }
 
+    @Nullable
     private Dependency processClass(Class<?> klass) {
+        long start = startStep(klass.getName(), BeanStep.SCAN_CLASS, null);
+        try {
+            return scanClass(klass);
+        } finally {
+            stepFinished(klass.getName(), BeanStep.SCAN_CLASS, null, start);
+        }
+    }
+
+    @Nullable
+    private Dependency scanClass(Class<?> klass) {
         List<Constructor<?>> constructor = Arrays.stream(klass.getConstructors())
                 .filter(constructor1 -> constructor1.isAnnotationPresent(DependencyConstructor.class))
                 .toList();
@@ -264,27 +1732,40 @@ public class DependencyManager {
         }
 
         Constructor<?> cons = constructor.get(0);
-        List<Class<?>> parameterTypes = List.of(cons.getParameterTypes());
+        List<Class<?>> parameterTypes = new ArrayList<>();
+        List<Boolean> parameterDeferred = new ArrayList<>();
+        for (Parameter parameter : cons.getParameters()) {
+            Class<?> target = getDeferredTarget(parameter.getParameterizedType());
+            parameterTypes.add(target != null ? target : parameter.getType());
+            parameterDeferred.add(target != null);
+        }
+        List<String> parameterQualifiers = Arrays.stream(cons.getParameters()).map(this::getQualifier).toList();
         List<Field> fields = Arrays.stream(klass.getDeclaredFields())
                 .filter(field -> field.isAnnotationPresent(Inject.class))
                 .toList();
         List<Dependency.AutoRunMethod> methods = new ArrayList<>();
+        List<Dependency.CloseMethod> closeMethods = new ArrayList<>();
+        List<Dependency.WarmupMethod> warmupMethods = new ArrayList<>();
+        MethodHandles.Lookup lookup = privateLookup(klass);
 
         for (Method method : klass.getDeclaredMethods()) {
-            if (method.isAnnotationPresent(AutoRun.class)) {
-                AutoRun annotation = method.getAnnotation(AutoRun.class);
-                Dependency.AutoRunMethod met = new Dependency.AutoRunMethod(method, annotation.priority(), annotation.async());
+            AutoRun annotation = method.getAnnotation(AutoRun.class);
+            if (annotation != null) {
+                Dependency.AutoRunMethod met = createAutoRunMethod(lookup, method, annotation.priority(), annotation.async());
                 methods.add(met);
             }
+            if (method.isAnnotationPresent(AutoClose.class)) {
+                closeMethods.add(new Dependency.CloseMethod(method.getName(), method, createHandle(lookup, method)));
+            }
+            Warmup warmup = method.getAnnotation(Warmup.class);
+            if (warmup != null) {
+                warmupMethods.add(new Dependency.WarmupMethod(method.getName(), method, createHandle(lookup, method), warmup.iterations(), warmup.budgetMs()));
+            }
         }
 
         List<Dependency.AutoRunMethod> methodErrors = checkMethods(methods);
-        List<Class<?>> errors = checkParameters(klass, parameterTypes);
         List<Field> fieldErrors = checkFields(klass, fields);
 
-        if (!errors.isEmpty()) {
-            log.severe("Class " + klass.getName() + " has invalid dependencies: " + errors);
-        }
         if (!fieldErrors.isEmpty()) {
             log.severe("Class " + klass.getName() + " has invalid fields: " + fieldErrors);
         }
@@ -296,7 +1777,205 @@ public class DependencyManager {
         Collections.sort(methods);
 
         //force add the class to the load order
-        return new Dependency(klass, cons, parameterTypes, fields, methods);
+        List<Dependency.InjectionField> injectionFields = fields.stream().map(field -> createInjectionField(lookup, field, getQualifier(field))).toList();
+        return new Dependency(klass, cons, parameterTypes, parameterQualifiers, parameterDeferred, injectionFields, methods, closeMethods, warmupMethods, loadFactory(klass));
+    }
+
+    /**
+     * Returns the type of the dependency a {@code Supplier<T>} or {@code Supplier<? extends T>} defers, or null if the
+     * type is no parameterized Supplier.
+     */
+    @Nullable
+    private Class<?> getDeferredTarget(Type type) {
+        if (!(type instanceof ParameterizedType parameterized) || parameterized.getRawType() != Supplier.class) {
+            return null;
+        }
+        Type argument = parameterized.getActualTypeArguments()[0];
+        if (argument instanceof WildcardType wildcard) {
+            argument = wildcard.getUpperBounds()[0];
+        }
+        if (argument instanceof ParameterizedType parameterizedArgument) {
+            argument = parameterizedArgument.getRawType();
+        }
+        return argument instanceof Class<?> target && target != Object.class ? target : null;
+    }
+
+    private String getQualifier(Parameter parameter) {
+        Named named = parameter.getAnnotation(Named.class);
+        return named == null ? "" : named.value();
+    }
+
+    private String getQualifier(Field field) {
+        Named named = field.getAnnotation(Named.class);
+        return named == null ? "" : named.value();
+    }
+
+    @Nullable
+    private MethodHandles.Lookup privateLookup(Class<?> klass) {
+        try {
+            return MethodHandles.privateLookupIn(klass, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            log.warning("Failed to get private access to class " + klass.getName() + ". Falling back to reflection.");
+            return null;
+        }
+    }
+
+    private Dependency.InjectionField createInjectionField(@Nullable MethodHandles.Lookup lookup, Field field, String qualifier) {
+        //The setter is resolved once, so injecting costs about as much as a direct field write
+        MethodHandle setter = null;
+        if (lookup != null) {
+            try {
+                setter = lookup.unreflectSetter(field);
+                if (Modifier.isStatic(field.getModifiers())) {
+                    setter = MethodHandles.dropArguments(setter, 0, Object.class);
+                }
+                setter = setter.asType(SETTER_TYPE);
+            } catch (IllegalAccessException | WrongMethodTypeException e) {
+                //Final fields can only be set reflectively
+                setter = null;
+            }
+        }
+        Class<?> target = getDeferredTarget(field.getGenericType());
+        if (target != null) {
+            return new Dependency.InjectionField(field.getName(), target, field, setter, qualifier, true);
+        }
+        return new Dependency.InjectionField(field, setter, qualifier);
+    }
+
+    private Dependency.AutoRunMethod createAutoRunMethod(@Nullable MethodHandles.Lookup lookup, Method method, int priority, boolean async) {
+        return new Dependency.AutoRunMethod(method, createHandle(lookup, method), priority, async);
+    }
+
+    /**
+     * Returns a handle of the type {@code (Object)void} calling the method, or null if it has to be invoked reflectively.
+     */
+    @Nullable
+    private MethodHandle createHandle(@Nullable MethodHandles.Lookup lookup, Method method) {
+        if (lookup == null || method.getParameterCount() != 0) {
+            return null;
+        }
+        try {
+            MethodHandle handle = lookup.unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return handle.asType(AUTO_RUN_TYPE);
+        } catch (IllegalAccessException | WrongMethodTypeException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private DependencyFactory<?> loadFactory(Class<?> klass) {
+        //Classes compiled without the annotation processor have no factory and are created reflectively
+        try {
+            Class<?> factoryClass = Class.forName(Constants.getFactoryName(klass.getName()), true, klass.getClassLoader());
+            return (DependencyFactory<?>) factoryClass.getConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            log.warning("Failed to load generated factory for class " + klass.getName() + ". Falling back to reflection.");
+            return null;
+        }
+    }
+
+    @Nullable
+    private Dependency processPlanEntry(PlanEntry entry, ClassLoader loader) {
+        IndexEntry indexEntry = entry.getIndexEntry();
+        if (entry.getType() == null) {
+            return processEntry(indexEntry, loader, true);
+        }
+
+        return createGenerated(entry.getType(), entry.getParameterTypes(), entry.getFieldTypes(), indexEntry, entry.getFactory());
+    }
+
+    /**
+     * Creates a dependency whose generated factory does everything, so only the names and types of its members are
+     * needed for ordering and binding.
+     */
+    private Dependency createGenerated(Class<?> klass, List<Class<?>> parameterTypes, List<Class<?>> fieldTypes, IndexEntry indexEntry, DependencyFactory<?> factory) {
+        List<Dependency.InjectionField> fields = new ArrayList<>();
+        for (int i = 0; i < indexEntry.getInjectFields().size(); i++) {
+            IndexEntry.InjectField field = indexEntry.getInjectFields().get(i);
+            fields.add(new Dependency.InjectionField(field.getName(), fieldTypes.get(i), null, null, field.getQualifier(), field.isDeferred()));
+        }
+        List<Dependency.AutoRunMethod> methods = new ArrayList<>();
+        for (IndexEntry.AutoRunMethod method : indexEntry.getAutoRunMethods()) {
+            methods.add(new Dependency.AutoRunMethod(method.getName(), null, null, method.getPriority(), method.isAsync()));
+        }
+        List<Dependency.CloseMethod> closeMethods = new ArrayList<>();
+        for (String method : indexEntry.getCloseMethods()) {
+            closeMethods.add(new Dependency.CloseMethod(method, null, null));
+        }
+        List<Dependency.WarmupMethod> warmupMethods = new ArrayList<>();
+        for (IndexEntry.WarmupMethod method : indexEntry.getWarmupMethods()) {
+            warmupMethods.add(new Dependency.WarmupMethod(method.getName(), null, null, method.getIterations(), method.getBudgetMs()));
+        }
+        return new Dependency(klass, null, parameterTypes, indexEntry.getParameterQualifiers(), indexEntry.getParameterDeferred(), fields, methods, closeMethods, warmupMethods, factory);
+    }
+
+    @Nullable
+    private Dependency processEntry(IndexEntry entry, ClassLoader loader, boolean hasFactory) {
+        //The entry was validated by the annotation processor, only the members are looked up
+        BeanStep step = BeanStep.LOAD_CLASS;
+        long start = startStep(entry.getClassName(), step, null);
+        try {
+            Class<?> klass = loader.loadClass(entry.getClassName());
+            stepFinished(entry.getClassName(), step, null, start);
+            step = BeanStep.SCAN_CLASS;
+            start = startStep(entry.getClassName(), step, null);
+
+            Class<?>[] parameterTypes = new Class<?>[entry.getConstructorParameters().size()];
+            Class<?>[] signature = new Class<?>[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                parameterTypes[i] = loadType(entry.getConstructorParameters().get(i), loader);
+                signature[i] = entry.getParameterDeferred().get(i) ? Supplier.class : parameterTypes[i];
+            }
+            DependencyFactory<?> factory = hasFactory ? loadFactory(klass) : null;
+            if (factory != null && factory.isComplete()) {
+                List<Class<?>> fieldTypes = new ArrayList<>();
+                for (IndexEntry.InjectField field : entry.getInjectFields()) {
+                    fieldTypes.add(loadType(field.getType(), loader));
+                }
+                return createGenerated(klass, List.of(parameterTypes), fieldTypes, entry, factory);
+            }
+            Constructor<?> cons = klass.getConstructor(signature);
+
+            MethodHandles.Lookup lookup = privateLookup(klass);
+            List<Dependency.InjectionField> fields = new ArrayList<>();
+            for (IndexEntry.InjectField field : entry.getInjectFields()) {
+                fields.add(createInjectionField(lookup, klass.getDeclaredField(field.getName()), field.getQualifier()));
+            }
+
+            List<Dependency.AutoRunMethod> methods = new ArrayList<>();
+            for (IndexEntry.AutoRunMethod method : entry.getAutoRunMethods()) {
+                methods.add(createAutoRunMethod(lookup, klass.getDeclaredMethod(method.getName()), method.getPriority(), method.isAsync()));
+            }
+
+            List<Dependency.CloseMethod> closeMethods = new ArrayList<>();
+            for (String name : entry.getCloseMethods()) {
+                Method method = klass.getDeclaredMethod(name);
+                closeMethods.add(new Dependency.CloseMethod(name, method, createHandle(lookup, method)));
+            }
+
+            List<Dependency.WarmupMethod> warmupMethods = new ArrayList<>();
+            for (IndexEntry.WarmupMethod warmupMethod : entry.getWarmupMethods()) {
+                Method method = klass.getDeclaredMethod(warmupMethod.getName());
+                warmupMethods.add(new Dependency.WarmupMethod(warmupMethod.getName(), method, createHandle(lookup, method), warmupMethod.getIterations(), warmupMethod.getBudgetMs()));
+            }
+
+            return new Dependency(klass, cons, List.of(parameterTypes), entry.getParameterQualifiers(), entry.getParameterDeferred(), fields, methods, closeMethods, warmupMethods, factory);
+        } catch (ClassNotFoundException | NoSuchMethodException | NoSuchFieldException e) {
+            log.severe("Failed to load indexed class " + entry.getClassName() + ". Is the index outdated? " + e);
+            return null;
+        } finally {
+            stepFinished(entry.getClassName(), step, null, start);
+        }
+    }
+
+    private Class<?> loadType(String name, ClassLoader loader) throws ClassNotFoundException {
+        Class<?> primitive = PRIMITIVES.get(name);
+        return primitive != null ? primitive : Class.forName(name, false, loader);
     }
 
     private List<Dependency.AutoRunMethod> checkMethods(List<Dependency.AutoRunMethod> methods) {
@@ -322,18 +2001,17 @@ public class DependencyManager {
         return fieldErrors;
     }
 
-    private List<Class<?>> checkParameters(Class<?> clazz, List<Class<?>> parameterTypes) {
-        //check parameters for @AutoLoadable and for any constructor that has @DependencyConstructor
+    private List<Class<?>> checkParameters(Class<?> clazz, List<Class<?>> parameterTypes, Set<Class<?>> fetched) {
+        //check parameters for @AutoLoadable classes, which were all fetched with their @DependencyConstructor already
         List<Class<?>> dependenciesError = new ArrayList<>();
         for (Class<?> parameterType : parameterTypes) {
-            //Continue because the dependency is already there, no need to check it again
-            if (objectCache.containsKey(parameterType)) {
+            //Continue because the dependency is already there, no need to check it again.
+            //Abstract types are bound to the dependency implementing them.
+            if (objectCache.containsKey(parameterType) || Modifier.isAbstract(parameterType.getModifiers())) {
                 continue;
             }
 
-            boolean hasDependencyConstructor = Arrays.stream(parameterType.getConstructors())
-                    .anyMatch(constructor -> constructor.isAnnotationPresent(DependencyConstructor.class));
-            if (!hasDependencyConstructor) {
+            if (!fetched.contains(parameterType)) {
                 dependenciesError.add(parameterType);
             } else {
                 //check if parametertype has clazz as parameter
@@ -344,4 +2022,66 @@ public class DependencyManager {
         }
         return dependenciesError;
     }
+
+    /**
+     * Caches the unqualified lookups of one DependencyManager on the looked up types. The values stay on the types as
+     * long as they are loaded, which may be longer than the DependencyManager lives, so neither the registry nor its
+     * values hold the DependencyManager or its dependencies strongly. The dependencies themselves are kept alive by
+     * the object cache of the DependencyManager.
+     */
+    private static final class Registry extends ClassValue<Object> {
+        private final WeakReference<DependencyManager> manager;
+
+        private Registry(DependencyManager manager) {
+            this.manager = new WeakReference<>(manager);
+        }
+
+        @Override
+        protected Object computeValue(Class<?> type) {
+            DependencyManager manager = this.manager.get();
+            Object obj = manager == null ? null : manager.findDependency(type, "");
+            return obj == null ? MISSING : new WeakReference<>(obj);
+        }
+
+        @Nullable
+        private Object lookup(Class<?> type) {
+            Object value = get(type);
+            return value == MISSING ? null : ((WeakReference<?>) value).get();
+        }
+
+        private void invalidate(Set<Class<?>> types) {
+            for (Class<?> type : types) {
+                remove(type);
+            }
+        }
+    }
+
+    /**
+     * A dependency ready to be created, ordered by its rank, highest first.
+     */
+    private static final class RankedTask implements Comparable<RankedTask> {
+        private final long rank;
+        private final CompletableFuture<Void> future;
+        private final Runnable action;
+
+        private RankedTask(long rank, CompletableFuture<Void> future, Runnable action) {
+            this.rank = rank;
+            this.future = future;
+            this.action = action;
+        }
+
+        private void run() {
+            try {
+                action.run();
+                future.complete(null);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public int compareTo(RankedTask other) {
+            return Long.compare(other.rank, rank);
+        }
+    }
 }
@@ -0,0 +1,125 @@
+package me.alex.dpl;
+
+import me.alex.dpl.annotation.Scoped;
+import me.alex.dpl.factory.DependencyResolver;
+import me.alex.dpl.pojo.Dependency;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A child container of a {@link DependencyManager}, for example for a tenant, a request or a plugin.
+ * <p>
+ * A scope holds its own instance of every {@link Scoped} class and shares all other dependencies with its
+ * DependencyManager. It is created with {@link DependencyManager#createScope(Object...)} from the plan the
+ * DependencyManager computed during init, so creating a scope never reads the index or loads classes again.
+ */
+public final class DependencyScope implements AutoCloseable {
+    private final DependencyManager parent;
+    private final List<Dependency> plan;
+    private final Map<Class<?>, Object> objectCache;
+    private final DependencyResolver resolver = new DependencyResolver() {
+        @Override
+        public <T> T resolve(Class<T> clazz) {
+            return resolve(clazz, "");
+        }
+
+        @Override
+        public <T> T resolve(Class<T> clazz, String qualifier) {
+            Object obj = findDependency(clazz, qualifier);
+            if (obj == null) {
+                throw new IllegalStateException("Failed to find dependency " + clazz.getName() + (qualifier.isEmpty() ? "" : " named " + qualifier));
+            }
+            return clazz.cast(obj);
+        }
+    };
+
+    DependencyScope(DependencyManager parent, List<Dependency> plan, Object... objects) {
+        this.parent = parent;
+        this.plan = plan;
+        this.objectCache = new HashMap<>((plan.size() + objects.length) * 2);
+        for (Object object : objects) {
+            objectCache.putIfAbsent(object.getClass(), object);
+        }
+
+        //The plan is already in load order, like the dependencies during init
+        for (Dependency dependency : plan) {
+            objectCache.put(dependency.getClazz(), parent.instantiate(dependency, resolver));
+        }
+        for (Dependency dependency : plan) {
+            parent.injectDependency(dependency, objectCache.get(dependency.getClazz()), resolver);
+        }
+        for (Dependency dependency : plan) {
+            parent.runDependencyMethods(dependency, objectCache.get(dependency.getClazz()));
+        }
+    }
+
+    /**
+     * Gets a class from this scope or its {@link DependencyManager}. Returns null if the class is not found.
+     *
+     * @param clazz The class to get
+     * @param <T>   The class type
+     * @return {@link T} The class
+     */
+    @Nullable
+    public <T> T getDependency(Class<T> clazz) {
+        return getDependency(clazz, "");
+    }
+
+    /**
+     * Gets the dependency with the given {@link me.alex.dpl.annotation.Named} qualifier from this scope or its
+     * {@link DependencyManager}. Returns null if the class is not found.
+     *
+     * @param clazz     The class to get
+     * @param qualifier The qualifier of the dependency
+     * @param <T>       The class type
+     * @return {@link T} The class
+     */
+    @Nullable
+    public <T> T getDependency(Class<T> clazz, String qualifier) {
+        Object obj = findDependency(clazz, qualifier);
+
+        if (obj == null) {
+            return null;
+        }
+
+        return clazz.cast(obj);
+    }
+
+    /**
+     * Closes the scoped dependencies of this scope like {@link DependencyManager#shutdown()} closes the shared ones.
+     * The objects the scope was created with are owned by the caller and are not closed.
+     */
+    @Override
+    public void close() {
+        parent.closeDependencies(plan, objectCache);
+    }
+
+    /**
+     * Returns the {@link DependencyManager} this scope was created by.
+     *
+     * @return {@link DependencyManager} The parent
+     */
+    public DependencyManager getParent() {
+        return parent;
+    }
+
+    @Nullable
+    private Object findDependency(Class<?> clazz, String qualifier) {
+        if (qualifier.isEmpty()) {
+            Object obj = objectCache.get(clazz);
+            if (obj != null) {
+                return obj;
+            }
+        }
+
+        //The bindings are shared, only the instances of scoped classes live in the scope
+        Class<?> bound = parent.getBoundClass(clazz, qualifier);
+        if (bound != null && parent.isScoped(bound)) {
+            return objectCache.get(bound);
+        }
+        return parent.findDependency(clazz, qualifier);
+    }
+}
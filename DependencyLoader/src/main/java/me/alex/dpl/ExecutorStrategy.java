@@ -0,0 +1,88 @@
+package me.alex.dpl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+/**
+ * Decides which executor the {@link DependencyManager} uses to load classes, create dependencies in parallel and run
+ * async {@link me.alex.dpl.annotation.AutoRun} methods.
+ */
+public enum ExecutorStrategy {
+    /**
+     * A work-stealing pool with one thread per core. Best for CPU bound constructors and methods.
+     */
+    WORK_STEALING {
+        @Override
+        public ExecutorService createExecutorService() {
+            return Executors.newWorkStealingPool(ForkJoinPool.getCommonPoolParallelism());
+        }
+
+        @Override
+        public ExecutorService createBlockingExecutorService() {
+            return createDaemonThreadPool();
+        }
+    },
+    /**
+     * One virtual thread per task. Best for constructors and methods blocking on I/O.
+     * Falls back to one daemon platform thread per task on runtimes without virtual threads.
+     */
+    VIRTUAL_THREADS {
+        @Override
+        public ExecutorService createExecutorService() {
+            if (VirtualThreads.FACTORY == null) return createDaemonThreadPool();
+            try {
+                return (ExecutorService) VirtualThreads.FACTORY.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create a virtual thread executor", e);
+            }
+        }
+
+        @Override
+        public ExecutorService createBlockingExecutorService() {
+            return createExecutorService();
+        }
+    };
+
+    /**
+     * Creates a new executor of this strategy.
+     *
+     * @return {@link ExecutorService} The new executor
+     */
+    public abstract ExecutorService createExecutorService();
+
+    /**
+     * Creates a new executor for tasks that mostly wait, like closing dependencies. Every task gets its own thread, so
+     * a task that hangs never delays the others.
+     *
+     * @return {@link ExecutorService} The new executor
+     */
+    public abstract ExecutorService createBlockingExecutorService();
+
+    private static ExecutorService createDaemonThreadPool() {
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Looks up the virtual thread executor once. It is looked up reflectively, so the library still runs on Java 17,
+     * and the fallback is only logged the first time.
+     */
+    private static final class VirtualThreads {
+        private static final Method FACTORY = lookup();
+
+        private static Method lookup() {
+            try {
+                return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            } catch (NoSuchMethodException e) {
+                Logger.getLogger(ExecutorStrategy.class.getSimpleName()).warning("Virtual threads are not available on this runtime. Using daemon platform threads instead.");
+                return null;
+            }
+        }
+    }
+}
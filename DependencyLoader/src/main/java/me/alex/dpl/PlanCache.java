@@ -0,0 +1,328 @@
+package me.alex.dpl;
+
+import me.alex.dpl.index.DependencyIndex;
+import me.alex.dpl.index.IndexEntry;
+import me.alex.dpl.instrumentation.BeanStep;
+import me.alex.dpl.instrumentation.StartupListener;
+import me.alex.dpl.pojo.Dependency;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the resolved startup plan of a classpath in a local file, so the next start of the same classpath reads it
+ * instead of reading, merging and sorting the indexes of all modules again.
+ * <p>
+ * The plan contains the index in load order with the edges between the entries, whether every class has a generated
+ * factory, and how long every dependency took to create, inject and run in previous starts. It is only used if the
+ * size and modification time of every index file and every indexed class file are unchanged. The annotation processor
+ * leaves an unchanged index untouched, so the class files are checked as well. A jar is checked once for all of its
+ * classes, and resources that are not local files are hashed. The file is read into memory instead of being mapped,
+ * so it can be replaced by the same process afterwards.
+ * <pre>
+ * int    magic
+ * short  version
+ * int    index fingerprint length, fingerprint bytes
+ * int    class count, then per class: int length, UTF-8 bytes of the class file URL
+ * int    class fingerprint length, fingerprint bytes
+ * int    index length, index bytes in the format of {@link DependencyIndex}
+ * int    entry count, then per entry: byte factory, long cost in nanoseconds
+ * </pre>
+ */
+final class PlanCache implements StartupListener {
+    private static final int MAGIC = 0x44504C43;
+    private static final short VERSION = 3;
+    private final Logger log = Logger.getLogger(this.getClass().getSimpleName());
+    private final Path file;
+    //Nanoseconds spent creating, injecting and running every class during this start
+    private final Map<String, Long> measured = new ConcurrentHashMap<>();
+    private List<URL> indexUrls = List.of();
+    @Nullable
+    private DependencyIndex index;
+    @Nullable
+    private byte[] fingerprint;
+    private List<URL> classUrls = List.of();
+    @Nullable
+    private byte[] classFingerprint;
+    private boolean[] factories = new boolean[0];
+    private long[] costs = new long[0];
+    private Map<String, Boolean> fetchedFactories = Map.of();
+
+    PlanCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the cached index if it was saved for the given index files and none of them or their classes changed
+     * since.
+     *
+     * @param indexUrls The index files of all modules
+     * @return The cached index or null if there is none or it is outdated
+     */
+    @Nullable
+    DependencyIndex load(List<URL> indexUrls) {
+        this.indexUrls = indexUrls;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                return null;
+            }
+            //Both are checked before the index is parsed, so an outdated plan costs as little as possible
+            byte[] current = fingerprint(indexUrls);
+            if (!Arrays.equals(readBytes(buffer), current)) {
+                log.info("Startup plan cache " + file + " is outdated.");
+                return null;
+            }
+            List<URL> classes = new ArrayList<>();
+            int classCount = buffer.getInt();
+            for (int i = 0; i < classCount; i++) {
+                classes.add(URI.create(new String(readBytes(buffer), StandardCharsets.UTF_8)).toURL());
+            }
+            byte[] currentClasses = fingerprint(classes);
+            if (!Arrays.equals(readBytes(buffer), currentClasses)) {
+                log.info("Startup plan cache " + file + " is outdated, classes changed.");
+                return null;
+            }
+
+            int length = buffer.getInt();
+            DependencyIndex cached = DependencyIndex.read(buffer.slice(buffer.position(), length));
+            buffer.position(buffer.position() + length);
+
+            int size = buffer.getInt();
+            factories = new boolean[size];
+            costs = new long[size];
+            for (int i = 0; i < size; i++) {
+                factories[i] = buffer.get() != 0;
+                costs[i] = buffer.getLong();
+            }
+            index = cached;
+            fingerprint = current;
+            classUrls = classes;
+            classFingerprint = currentClasses;
+            return cached;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            log.warning("Failed to read startup plan cache " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns whether the class had a generated factory when the plan was saved. Classes without a saved plan may
+     * have one.
+     *
+     * @param className The name of the class
+     * @return Whether the factory should be loaded
+     */
+    boolean hasFactory(String className) {
+        int position = getPosition(className);
+        return position < 0 || position >= factories.length || factories[position];
+    }
+
+    /**
+     * Returns how long the given class took to create, inject and run in previous starts.
+     *
+     * @param className The name of the class
+     * @return The cost in nanoseconds or -1 if it is unknown
+     */
+    long getCost(String className) {
+        int position = getPosition(className);
+        return position >= 0 && position < costs.length ? costs[position] : -1;
+    }
+
+    private int getPosition(String className) {
+        //An entry of exactly the class always wins, so this is its own position
+        return index != null ? index.resolve(className, "") : DependencyIndex.NOT_FOUND;
+    }
+
+    /**
+     * Remembers the index used for this start and the classes fetched from it, to be saved once init is done.
+     *
+     * @param index   The index used for this start
+     * @param fetched The dependencies fetched from the index
+     */
+    void setFetched(DependencyIndex index, List<Dependency> fetched) {
+        if (this.index != index) {
+            this.index = index;
+            this.fingerprint = null;
+            this.classFingerprint = null;
+            List<URL> classUrls = new ArrayList<>();
+            for (Dependency dependency : fetched) {
+                Class<?> klass = dependency.getClazz();
+                URL url = klass.getClassLoader() != null ? klass.getClassLoader().getResource(klass.getName().replace('.', '/') + ".class") : null;
+                if (url != null) {
+                    classUrls.add(url);
+                }
+            }
+            this.classUrls = classUrls;
+        }
+        Map<String, Boolean> fetchedFactories = new HashMap<>();
+        fetched.forEach(dependency -> fetchedFactories.put(dependency.getClazz().getName(), dependency.getFactory() != null));
+        this.fetchedFactories = fetchedFactories;
+    }
+
+    @Override
+    public void onBeanStep(String className, BeanStep step, @Nullable String method, long startNanos, long durationNanos, Thread thread) {
+        if (step == BeanStep.CREATE_INSTANCE || step == BeanStep.INJECT_FIELDS || step == BeanStep.RUN_METHOD) {
+            measured.merge(className, durationNanos, Long::sum);
+        }
+    }
+
+    @Override
+    public void onInitFinished(long startNanos, long durationNanos) {
+        if (index == null) {
+            return;
+        }
+        try {
+            save(index);
+        } catch (IOException e) {
+            log.warning("Failed to write startup plan cache " + file + ": " + e);
+        }
+    }
+
+    private void save(DependencyIndex index) throws IOException {
+        if (fingerprint == null) {
+            fingerprint = fingerprint(indexUrls);
+        }
+        if (classFingerprint == null) {
+            classFingerprint = fingerprint(classUrls);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(bytes);
+
+        ByteArrayOutputStream plan = new ByteArrayOutputStream(bytes.size() + 64);
+        DataOutputStream out = new DataOutputStream(plan);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(fingerprint.length);
+        out.write(fingerprint);
+        out.writeInt(classUrls.size());
+        for (URL url : classUrls) {
+            byte[] name = url.toExternalForm().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(name.length);
+            out.write(name);
+        }
+        out.writeInt(classFingerprint.length);
+        out.write(classFingerprint);
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+
+        List<IndexEntry> entries = index.getEntries();
+        out.writeInt(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            String className = entries.get(i).getClassName();
+            out.writeByte(fetchedFactories.getOrDefault(className, i >= factories.length || factories[i]) ? 1 : 0);
+            //Averaged with previous starts, so a single slow start does not dominate
+            long previous = i < costs.length ? costs[i] : -1;
+            Long current = measured.get(className);
+            out.writeLong(current == null ? Math.max(previous, 0) : previous <= 0 ? current : (previous + current) / 2);
+        }
+        out.flush();
+
+        //Another process may be reading the old file, so it is replaced instead of overwritten
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, plan.toByteArray());
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Hashes the size and modification time of the files containing the resources, each file once. Only resources
+     * that are not in local files are read.
+     */
+    private static byte[] fingerprint(List<URL> urls) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        //All classes of a jar share one stamp
+        Set<String> locations = new HashSet<>();
+        for (URL url : urls) {
+            URL location = getLocation(url);
+            if (!locations.add(location.toExternalForm())) {
+                continue;
+            }
+            String stamp = stamp(url);
+            digest.update((stamp != null ? stamp : url.toExternalForm()).getBytes(StandardCharsets.UTF_8));
+            if (stamp == null) {
+                try (InputStream stream = url.openStream()) {
+                    digest.update(stream.readAllBytes());
+                }
+            }
+            digest.update((byte) '\n');
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Returns the file containing the resource, which is the jar for resources in a jar.
+     */
+    private static URL getLocation(URL url) throws IOException {
+        if (url.getProtocol().equals("jar")) {
+            //Only parses the URL, the jar is not opened
+            return ((JarURLConnection) url.openConnection()).getJarFileURL();
+        }
+        return url;
+    }
+
+    /**
+     * Returns the location, size and modification time of the file containing the resource, or null if it is not a
+     * local file. The file is not opened.
+     *
+     * @param url The resource
+     * @return The stamp or null
+     * @throws IOException If the file can not be inspected
+     */
+    @Nullable
+    static String stamp(URL url) throws IOException {
+        URL location = getLocation(url);
+        if (!location.getProtocol().equals("file")) {
+            return null;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Path.of(location.toURI()), BasicFileAttributes.class);
+            return url.toExternalForm() + '|' + attributes.size() + '|' + attributes.lastModifiedTime().toMillis();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new IOException("Invalid resource location " + location, e);
+        }
+    }
+}
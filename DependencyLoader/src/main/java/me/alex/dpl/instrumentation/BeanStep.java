@@ -0,0 +1,31 @@
+package me.alex.dpl.instrumentation;
+
+/**
+ * The steps a single dependency goes through.
+ */
+public enum BeanStep {
+    /**
+     * Loading the class.
+     */
+    LOAD_CLASS,
+    /**
+     * Looking up the constructor, fields, methods and generated factory of the class.
+     */
+    SCAN_CLASS,
+    /**
+     * Running the constructor.
+     */
+    CREATE_INSTANCE,
+    /**
+     * Injecting the fields.
+     */
+    INJECT_FIELDS,
+    /**
+     * Running one {@link me.alex.dpl.annotation.AutoRun} method.
+     */
+    RUN_METHOD,
+    /**
+     * Running all iterations of one {@link me.alex.dpl.annotation.Warmup} method, after init.
+     */
+    WARMUP
+}
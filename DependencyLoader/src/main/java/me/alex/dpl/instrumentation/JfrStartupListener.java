@@ -0,0 +1,113 @@
+package me.alex.dpl.instrumentation;
+
+import jdk.jfr.*;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link StartupListener} that emits the timings of init as JDK Flight Recorder events, so they show up next to
+ * class loading, GC and lock events of the same recording. The events are only committed while a recording with the
+ * {@code me.alex.dpl} events enabled is running. Every event begins when its phase or step starts and ends when it
+ * finishes, so its duration and start time are those of the phase or step.
+ */
+public class JfrStartupListener implements StartupListener {
+    //Phases of one init never overlap and the warm-up phase finishes on another thread
+    private final Map<StartupPhase, PhaseEvent> phases = new ConcurrentHashMap<>();
+    //Steps are finished on the thread that started them, a lazy dependency nests its steps inside another step
+    private final ThreadLocal<Deque<BeanStepEvent>> steps = ThreadLocal.withInitial(ArrayDeque::new);
+    @Nullable
+    private volatile InitEvent init;
+
+    @Override
+    public void onPhaseStarted(StartupPhase phase) {
+        PhaseEvent event = new PhaseEvent();
+        event.phase = phase.name();
+        event.begin();
+        phases.put(phase, event);
+    }
+
+    @Override
+    public void onPhase(StartupPhase phase, long startNanos, long durationNanos) {
+        PhaseEvent event = phases.remove(phase);
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void onBeanStepStarted(String className, BeanStep step, @Nullable String method) {
+        BeanStepEvent event = new BeanStepEvent();
+        event.className = className;
+        event.step = step.name();
+        event.method = method;
+        event.begin();
+        steps.get().push(event);
+    }
+
+    @Override
+    public void onBeanStep(String className, BeanStep step, @Nullable String method, long startNanos, long durationNanos, Thread thread) {
+        //Empty if the listener was added while the step ran
+        BeanStepEvent event = steps.get().poll();
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void onInitStarted() {
+        InitEvent event = new InitEvent();
+        event.begin();
+        init = event;
+    }
+
+    @Override
+    public void onInitFinished(long startNanos, long durationNanos) {
+        InitEvent event = init;
+        init = null;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+
+    @Name("me.alex.dpl.Phase")
+    @Label("Dependency Init Phase")
+    @Category("Dependency Loader")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("me.alex.dpl.BeanStep")
+    @Label("Dependency Step")
+    @Category("Dependency Loader")
+    @StackTrace(false)
+    static class BeanStepEvent extends Event {
+        @Label("Class")
+        String className;
+        @Label("Step")
+        String step;
+        @Label("Method")
+        String method;
+    }
+
+    @Name("me.alex.dpl.Init")
+    @Label("Dependency Init")
+    @Category("Dependency Loader")
+    @StackTrace(false)
+    static class InitEvent extends Event {
+    }
+}
@@ -0,0 +1,84 @@
+package me.alex.dpl.instrumentation;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Receives the timings of {@code DependencyManager#init}. Register it with
+ * {@code DependencyManager#addStartupListener} before init.
+ * <p>
+ * All times are {@link System#nanoTime()} values. Steps running on the executor are reported from the thread running
+ * them, so implementations have to be thread-safe. Every started phase and step is finished exactly once, a step on
+ * the thread that started it. Steps of one thread may nest, a lazy dependency is created inside the step needing it.
+ * Lazy and scoped dependencies report their steps when they are created, which may be after init.
+ */
+public interface StartupListener {
+
+    /**
+     * Called before a phase of init starts.
+     *
+     * @param phase The phase
+     */
+    default void onPhaseStarted(StartupPhase phase) {
+    }
+
+    /**
+     * Called after a phase of init finished.
+     *
+     * @param phase         The phase
+     * @param startNanos    The start of the phase
+     * @param durationNanos The duration of the phase
+     */
+    default void onPhase(StartupPhase phase, long startNanos, long durationNanos) {
+    }
+
+    /**
+     * Called before a dependency starts a step, on the thread running it.
+     *
+     * @param className The name of the class of the dependency
+     * @param step      The step
+     * @param method    The name of the method for {@link BeanStep#RUN_METHOD} and {@link BeanStep#WARMUP},
+     *                  otherwise null
+     */
+    default void onBeanStepStarted(String className, BeanStep step, @Nullable String method) {
+    }
+
+    /**
+     * Called after a dependency finished a step.
+     *
+     * @param className     The name of the class of the dependency
+     * @param step          The step
+     * @param method        The name of the method for {@link BeanStep#RUN_METHOD} and {@link BeanStep#WARMUP},
+     *                      otherwise null
+     * @param startNanos    The start of the step
+     * @param durationNanos The duration of the step
+     * @param thread        The thread that ran the step
+     */
+    default void onBeanStep(String className, BeanStep step, @Nullable String method, long startNanos, long durationNanos, Thread thread) {
+    }
+
+    /**
+     * Called once per dependency after all classes were fetched, with the classes it needs to be created and injected.
+     *
+     * @param className    The name of the class of the dependency
+     * @param dependencies The names of the classes it depends on
+     */
+    default void onDependencies(String className, List<String> dependencies) {
+    }
+
+    /**
+     * Called at the start of init.
+     */
+    default void onInitStarted() {
+    }
+
+    /**
+     * Called at the end of init.
+     *
+     * @param startNanos    The start of init
+     * @param durationNanos The duration of init
+     */
+    default void onInitFinished(long startNanos, long durationNanos) {
+    }
+}
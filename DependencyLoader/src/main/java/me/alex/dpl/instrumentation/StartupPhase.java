@@ -0,0 +1,40 @@
+package me.alex.dpl.instrumentation;
+
+/**
+ * The phases of {@code DependencyManager#init}, in the order they run.
+ */
+public enum StartupPhase {
+    /**
+     * Reading the dependency index or the legacy class list.
+     */
+    READ_INDEX,
+    /**
+     * Loading all classes and looking up their constructors, fields and methods.
+     */
+    FETCH_CLASSES,
+    /**
+     * Running the constructors of all eager dependencies.
+     */
+    CREATE_INSTANCES,
+    /**
+     * Waiting for {@link me.alex.dpl.annotation.Provided} dependencies that were not added yet.
+     */
+    AWAIT_PROVIDED,
+    /**
+     * Injecting the fields of all eager dependencies.
+     */
+    INJECT_FIELDS,
+    /**
+     * Running the {@link me.alex.dpl.annotation.AutoRun} methods of all eager dependencies.
+     */
+    RUN_METHODS,
+    /**
+     * Waiting for async {@link me.alex.dpl.annotation.AutoRun} methods.
+     */
+    AWAIT_ASYNC_METHODS,
+    /**
+     * Running the {@link me.alex.dpl.annotation.Warmup} methods of all eager dependencies. Runs in the background
+     * after init returned and ends with readiness.
+     */
+    WARMUP
+}
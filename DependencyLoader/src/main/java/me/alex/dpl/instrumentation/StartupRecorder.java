@@ -0,0 +1,250 @@
+package me.alex.dpl.instrumentation;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A {@link StartupListener} that keeps all timings of init in memory.
+ * <p>
+ * It sums up the time of every phase and dependency, finds the critical path through the dependency graph and writes
+ * everything as JSON in the trace event format, which can be opened as a flame chart in {@code chrome://tracing},
+ * Perfetto or speedscope.
+ */
+public class StartupRecorder implements StartupListener {
+    //Phases are shown on their own row in the flame chart
+    private static final long PHASE_THREAD = 0;
+    private final Queue<Span> phases = new ConcurrentLinkedQueue<>();
+    private final Queue<Span> steps = new ConcurrentLinkedQueue<>();
+    private final Map<String, List<String>> graph = new ConcurrentHashMap<>();
+    private volatile long initStart = -1;
+    private volatile long initDuration;
+
+    @Override
+    public void onPhase(StartupPhase phase, long startNanos, long durationNanos) {
+        phases.add(new Span(phase.name(), null, null, startNanos, durationNanos, PHASE_THREAD, "init phases"));
+    }
+
+    @Override
+    public void onBeanStep(String className, BeanStep step, @Nullable String method, long startNanos, long durationNanos, Thread thread) {
+        steps.add(new Span(className, step, method, startNanos, durationNanos, thread.getId(), thread.getName()));
+    }
+
+    @Override
+    public void onDependencies(String className, List<String> dependencies) {
+        graph.put(className, List.copyOf(dependencies));
+    }
+
+    @Override
+    public void onInitFinished(long startNanos, long durationNanos) {
+        initStart = startNanos;
+        initDuration = durationNanos;
+    }
+
+    /**
+     * Returns the duration of init in nanoseconds or 0 if init did not finish yet.
+     *
+     * @return The duration
+     */
+    public long getInitDuration() {
+        return initDuration;
+    }
+
+    /**
+     * Returns the duration of every phase in nanoseconds.
+     *
+     * @return The durations by phase
+     */
+    public Map<StartupPhase, Long> getPhaseDurations() {
+        Map<StartupPhase, Long> durations = new EnumMap<>(StartupPhase.class);
+        for (Span phase : phases) {
+            durations.merge(StartupPhase.valueOf(phase.name), phase.duration, Long::sum);
+        }
+        return durations;
+    }
+
+    /**
+     * Returns the total time spent on every dependency in nanoseconds, over all of its steps, slowest first.
+     *
+     * @return The durations by class name
+     */
+    public Map<String, Long> getBeanDurations() {
+        Map<String, Long> durations = new HashMap<>();
+        for (Span step : steps) {
+            durations.merge(step.name, step.duration, Long::sum);
+        }
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        durations.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    /**
+     * Returns the chain of dependencies that took the longest to create, inject and run, with the dependency everything
+     * else on the chain depends on first. Even with unlimited threads, init can not be faster than this chain.
+     *
+     * @return The class names on the critical path
+     */
+    public List<String> getCriticalPath() {
+        Map<String, Long> costs = new HashMap<>();
+        for (Span step : steps) {
+            if (step.step != BeanStep.LOAD_CLASS && step.step != BeanStep.SCAN_CLASS && step.step != BeanStep.WARMUP) {
+                costs.merge(step.name, step.duration, Long::sum);
+            }
+        }
+
+        //finish of a class = its own cost + the latest finish of the classes it depends on
+        Map<String, Long> finish = new HashMap<>();
+        Map<String, String> previous = new HashMap<>();
+        for (String root : graph.keySet()) {
+            Deque<String> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                String node = stack.peek();
+                if (finish.containsKey(node)) {
+                    stack.pop();
+                    continue;
+                }
+                boolean ready = true;
+                for (String dependency : graph.getOrDefault(node, List.of())) {
+                    if (graph.containsKey(dependency) && !finish.containsKey(dependency)) {
+                        stack.push(dependency);
+                        ready = false;
+                    }
+                }
+                if (!ready) {
+                    continue;
+                }
+                stack.pop();
+
+                long latest = 0;
+                for (String dependency : graph.getOrDefault(node, List.of())) {
+                    Long dependencyFinish = finish.get(dependency);
+                    if (dependencyFinish != null && dependencyFinish >= latest) {
+                        latest = dependencyFinish;
+                        previous.put(node, dependency);
+                    }
+                }
+                finish.put(node, latest + costs.getOrDefault(node, 0L));
+            }
+        }
+
+        String last = finish.entrySet().stream().max(Map.Entry.comparingByValue()).map(Map.Entry::getKey).orElse(null);
+        LinkedList<String> path = new LinkedList<>();
+        for (String node = last; node != null; node = previous.get(node)) {
+            path.addFirst(node);
+        }
+        return path;
+    }
+
+    /**
+     * Writes all recorded timings as JSON in the trace event format. Times are in microseconds since the start of init.
+     * The critical path and the durations of the dependencies are added as extra fields.
+     *
+     * @param writer The writer to write to
+     * @throws IOException If writing fails
+     */
+    public void writeJson(Writer writer) throws IOException {
+        long origin = initStart;
+        if (origin < 0) {
+            origin = phases.stream().mapToLong(span -> span.start).min().orElse(0);
+        }
+
+        StringBuilder json = new StringBuilder("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        Map<Long, String> threads = new TreeMap<>();
+        boolean first = true;
+        for (Queue<Span> spans : List.of(phases, steps)) {
+            for (Span span : spans) {
+                threads.putIfAbsent(span.threadId, span.threadName);
+                json.append(first ? "" : ",").append("\n{\"name\":").append(quote(span.getLabel()))
+                        .append(",\"cat\":").append(quote(span.step == null ? "phase" : span.step.name()))
+                        .append(",\"ph\":\"X\",\"pid\":1,\"tid\":").append(span.threadId)
+                        .append(",\"ts\":").append(micros(span.start - origin))
+                        .append(",\"dur\":").append(micros(span.duration));
+                if (span.step != null) {
+                    json.append(",\"args\":{\"class\":").append(quote(span.name));
+                    if (span.method != null) {
+                        json.append(",\"method\":").append(quote(span.method));
+                    }
+                    json.append("}");
+                }
+                json.append("}");
+                first = false;
+            }
+        }
+        for (Map.Entry<Long, String> thread : threads.entrySet()) {
+            json.append(first ? "" : ",").append("\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(thread.getKey())
+                    .append(",\"args\":{\"name\":").append(quote(thread.getValue())).append("}}");
+            first = false;
+        }
+
+        json.append("\n],\"initDuration\":").append(micros(initDuration));
+        json.append(",\n\"criticalPath\":[");
+        StringJoiner path = new StringJoiner(",");
+        getCriticalPath().forEach(node -> path.add(quote(node)));
+        json.append(path).append("],\n\"beanDurations\":{");
+        StringJoiner durations = new StringJoiner(",");
+        getBeanDurations().forEach((name, duration) -> durations.add("\n" + quote(name) + ":" + micros(duration)));
+        json.append(durations).append("\n}}\n");
+        writer.write(json.toString());
+        writer.flush();
+    }
+
+    private static String micros(long nanos) {
+        return String.valueOf(nanos / 1000.0);
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static final class Span {
+        private final String name;
+        @Nullable
+        private final BeanStep step;
+        @Nullable
+        private final String method;
+        private final long start;
+        private final long duration;
+        private final long threadId;
+        private final String threadName;
+
+        private Span(String name, @Nullable BeanStep step, @Nullable String method, long start, long duration, long threadId, String threadName) {
+            this.name = name;
+            this.step = step;
+            this.method = method;
+            this.start = start;
+            this.duration = duration;
+            this.threadId = threadId;
+            this.threadName = threadName;
+        }
+
+        private String getLabel() {
+            if (step == null) {
+                return name;
+            }
+            String simpleName = name.substring(name.lastIndexOf('.') + 1);
+            return method != null ? simpleName + "#" + method : simpleName + " " + step.name();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package me.alex.dpl;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLClassLoader;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncAutoRunTest {
+    private static final String TASKS = """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Tasks {
+                public static volatile boolean finished;
+
+                @DependencyConstructor
+                public Tasks() {
+                }
+
+                @AutoRun(async = true)
+                public void quick() throws InterruptedException {
+                    Thread.sleep(200);
+                    finished = true;
+                }
+
+                @AutoRun(async = true)
+                public void slow() throws InterruptedException {
+                    Thread.sleep(%d);
+                }
+            }
+            """;
+
+    @Test
+    void initJoinsAsyncMethods() throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Tasks", TASKS.formatted(300)));
+        List<LogRecord> warnings = new CopyOnWriteArrayList<>();
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.setAsyncTimeout(Duration.ofSeconds(10));
+        withWarnings(warnings, () -> manager.init(loader));
+
+        assertTrue(loader.loadClass("test.Tasks").getField("finished").getBoolean(null), "Init returned before the async method finished");
+        assertTrue(warnings.isEmpty(), "Finished methods were reported: " + warnings);
+        manager.shutdown();
+    }
+
+    @Test
+    void reportsAsyncMethodsStillRunningAfterTimeout() throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Tasks", TASKS.formatted(5000)));
+        List<LogRecord> warnings = new CopyOnWriteArrayList<>();
+        Duration timeout = Duration.ofMillis(500);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.setAsyncTimeout(timeout);
+
+        long start = System.nanoTime();
+        withWarnings(warnings, () -> manager.init(loader));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(4)) < 0, "Init waited for the slow method: " + elapsed);
+        assertTrue(loader.loadClass("test.Tasks").getField("finished").getBoolean(null), "Init did not wait for the quick method");
+        assertEquals(1, warnings.size(), "Expected one report of the running methods: " + warnings);
+        String message = warnings.get(0).getMessage();
+        assertTrue(message.contains("test.Tasks#slow"), "The slow method was not reported: " + message);
+        assertFalse(message.contains("test.Tasks#quick"), "The finished method was reported: " + message);
+        manager.shutdown();
+    }
+
+    @Test
+    void virtualThreadStrategyRunsTasksOnEveryRuntime() throws Exception {
+        ExecutorService executor = ExecutorStrategy.VIRTUAL_THREADS.createExecutorService();
+        try {
+            Future<Boolean> daemon = executor.submit(() -> Thread.currentThread().isDaemon());
+            assertTrue(daemon.get(10, TimeUnit.SECONDS), "Tasks must not keep the JVM alive");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void withWarnings(List<LogRecord> warnings, Runnable action) {
+        Logger logger = Logger.getLogger(DependencyManager.class.getSimpleName());
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel() == Level.WARNING && record.getMessage().startsWith("Async methods")) {
+                    warnings.add(record);
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.addHandler(handler);
+        try {
+            action.run();
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+}
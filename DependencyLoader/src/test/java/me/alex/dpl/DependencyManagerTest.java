@@ -0,0 +1,647 @@
+package me.alex.dpl;
+
+import me.alex.dpl.factory.DependencyPlan;
+import me.alex.dpl.instrumentation.StartupListener;
+import me.alex.dpl.instrumentation.StartupPhase;
+import me.alex.dpl.pojo.Dependency;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URLClassLoader;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyManagerTest {
+    private static final String SERVICE = """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Service {
+                @DependencyConstructor
+                public Service() {
+                }
+            }
+            """;
+
+    @Test
+    void createsThroughGeneratedFactories() throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Service", SERVICE, "test.Client", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Client {
+                    @Inject
+                    Service service;
+
+                    @DependencyConstructor
+                    public Client() {
+                    }
+
+                    public Service getService() {
+                        return service;
+                    }
+                }
+                """, "test.Checked", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                //No factory is generated for a constructor declaring a checked exception
+                @AutoLoadable
+                public class Checked {
+                    @DependencyConstructor
+                    public Checked(Service service) throws java.io.IOException {
+                    }
+                }
+                """));
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        List<Dependency> dependencies = manager.fetchIndexedClasses(manager.readIndex(loader), loader);
+        assertEquals(3, dependencies.size());
+        for (Dependency dependency : dependencies) {
+            boolean checked = dependency.getClazz().getName().equals("test.Checked");
+            assertEquals(!checked, dependency.getFactory() != null, "Factory of " + dependency.getClazz().getName());
+        }
+
+        manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+        Class<?> client = loader.loadClass("test.Client");
+        assertSame(manager.getDependency(loader.loadClass("test.Service")), client.getMethod("getService").invoke(manager.getDependency(client)));
+        assertNotNull(manager.getDependency(loader.loadClass("test.Checked")), "Class with a checked constructor was not created reflectively");
+        manager.shutdown();
+    }
+
+    @Test
+    void generatesWarningFreeFactoriesForGenericTypes() throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Box", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Box<T> {
+                    @DependencyConstructor
+                    public Box() {
+                    }
+                }
+                """, "test.Client", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+                import java.util.function.Supplier;
+
+                @AutoLoadable
+                public class Client {
+                    @Inject
+                    Box<String> box;
+                    final Supplier<Box<Integer>> later;
+
+                    @DependencyConstructor
+                    public Client(Box<String> first, Supplier<Box<Integer>> later) {
+                        this.later = later;
+                    }
+
+                    public Box<String> getBox() {
+                        return box;
+                    }
+
+                    public Box<Integer> getLater() {
+                        return later.get();
+                    }
+                }
+                """), "-Xlint:all", "-Xlint:-processing", "-Werror");
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+
+        Class<?> client = loader.loadClass("test.Client");
+        Object box = manager.getDependency(loader.loadClass("test.Box"));
+        assertSame(box, client.getMethod("getBox").invoke(manager.getDependency(client)));
+        assertSame(box, client.getMethod("getLater").invoke(manager.getDependency(client)));
+        manager.shutdown();
+    }
+
+    @Test
+    void runsAutoRunMethodsInPhases() throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Events", """
+                package test;
+
+                import java.util.*;
+
+                public final class Events {
+                    public static final List<String> EVENTS = Collections.synchronizedList(new ArrayList<>());
+                }
+                """, "test.First", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class First {
+                    @DependencyConstructor
+                    public First() {
+                    }
+
+                    @AutoRun(priority = 0)
+                    void early() throws InterruptedException {
+                        //Gives the second class the chance to run too early
+                        Thread.sleep(50);
+                        Events.EVENTS.add("first-0");
+                    }
+
+                    @AutoRun(priority = 1)
+                    void late() {
+                        Events.EVENTS.add("first-1");
+                    }
+                }
+                """, "test.Second", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Second {
+                    @DependencyConstructor
+                    public Second(First first) {
+                    }
+
+                    @AutoRun(priority = 0)
+                    void early() {
+                        Events.EVENTS.add("second-0");
+                    }
+                }
+                """));
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.setPhasedAutoRun(true);
+        manager.init(loader);
+
+        //Without phases, all methods of the first class would run before the second class
+        assertEquals(List.of("first-0", "second-0", "first-1"), loader.loadClass("test.Events").getField("EVENTS").get(null));
+        manager.shutdown();
+    }
+
+    @Test
+    void injectsStaticFields() throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Service", SERVICE, "test.Holder", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Holder {
+                    @Inject
+                    static Service service;
+                    @Inject
+                    private static Service privateService;
+
+                    @DependencyConstructor
+                    public Holder() {
+                    }
+
+                    public static Service getService() {
+                        return service;
+                    }
+
+                    public static Service getPrivateService() {
+                        return privateService;
+                    }
+                }
+                """));
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+
+        Class<?> service = loader.loadClass("test.Service");
+        Class<?> holder = loader.loadClass("test.Holder");
+        assertNotNull(manager.getDependency(holder), "Class with static fields was dropped");
+        assertSame(manager.getDependency(service), holder.getMethod("getService").invoke(null));
+        assertSame(manager.getDependency(service), holder.getMethod("getPrivateService").invoke(null));
+        manager.shutdown();
+    }
+
+    private static final Map<String, String> DEFERRED = Map.of("test.First", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+            import java.util.function.Supplier;
+
+            @AutoLoadable
+            public class First implements Supplier<Supplier<Second>> {
+                private final Supplier<Second> second;
+
+                @DependencyConstructor
+                public First(Supplier<Second> second) {
+                    this.second = second;
+                }
+
+                public Supplier<Second> get() {
+                    return second;
+                }
+            }
+            """, "test.Second", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Second {
+                @DependencyConstructor
+                public Second(First first) {
+                }
+            }
+            """, "test.Reflective", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+            import java.util.function.Supplier;
+
+            //The private field keeps the factory from handling the class
+            @AutoLoadable
+            public class Reflective implements Supplier<Supplier<Second>> {
+                @Inject
+                private Supplier<Second> second;
+
+                @DependencyConstructor
+                public Reflective(Supplier<First> first) {
+                }
+
+                public Supplier<Second> get() {
+                    return second;
+                }
+            }
+            """);
+
+    @Test
+    void injectsDeferredDependenciesFromIndex() throws Exception {
+        URLClassLoader loader = TestSources.compile(DEFERRED);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+        assertDeferred(manager, loader);
+    }
+
+    @Test
+    void injectsDeferredDependenciesFromPlan() throws Exception {
+        URLClassLoader loader = TestSources.compile(DEFERRED, "-Adpl.plan=test.TestPlan");
+        DependencyPlan plan = (DependencyPlan) loader.loadClass("test.TestPlan").getConstructor().newInstance();
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        //Deferred edges would form a cycle the parallel scheduler never starts
+        manager.setParallelInit(true);
+        manager.init(plan);
+        assertDeferred(manager, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void assertDeferred(DependencyManager manager, ClassLoader loader) throws Exception {
+        Object second = manager.getDependency(loader.loadClass("test.Second"));
+        assertNotNull(second, "Class depending on a deferred class was not created");
+        for (String className : new String[]{"test.First", "test.Reflective"}) {
+            Object dependency = manager.getDependency(loader.loadClass(className));
+            assertNotNull(dependency, className + " was not created");
+            assertSame(second, ((Supplier<Supplier<?>>) dependency).get().get());
+        }
+        manager.shutdown();
+    }
+
+    @Test
+    void missingProvidedTypeTimesOutOnce() throws Exception {
+        assertProvidedTimeout(false);
+    }
+
+    @Test
+    void missingProvidedTypeTimesOutOnceInParallel() throws Exception {
+        assertProvidedTimeout(true);
+    }
+
+    private static void assertProvidedTimeout(boolean parallel) throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Config", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @Provided
+                public interface Config {
+                }
+                """, "test.First", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class First {
+                    @DependencyConstructor
+                    public First(Config config) {
+                    }
+                }
+                """, "test.Second", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Second {
+                    @DependencyConstructor
+                    public Second(Config config) {
+                    }
+                }
+                """));
+        Duration timeout = Duration.ofMillis(500);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.setParallelInit(parallel);
+        manager.setAsyncTimeout(timeout);
+
+        long start = System.nanoTime();
+        manager.init(loader);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertTrue(elapsed.compareTo(timeout) >= 0, "Init did not wait for the provided type: " + elapsed);
+        assertTrue(elapsed.compareTo(timeout.multipliedBy(2)) < 0, "Init waited more than once for the provided type: " + elapsed);
+        manager.shutdown();
+    }
+
+    @Test
+    void sequentialInitCreatesTheRestAfterAFailure() throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Service", SERVICE, "test.Broken", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Broken {
+                    @DependencyConstructor
+                    public Broken() {
+                        throw new IllegalStateException("Broken on purpose");
+                    }
+                }
+                """, "test.Alpha", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Alpha {
+                    @DependencyConstructor
+                    public Alpha() {
+                    }
+                }
+                """, "test.Client", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Client {
+                    @DependencyConstructor
+                    public Client(Service service) {
+                    }
+                }
+                """));
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.setParallelInit(false);
+        manager.init(loader);
+
+        assertNull(manager.getDependency(loader.loadClass("test.Broken")));
+        for (String name : List.of("test.Alpha", "test.Service", "test.Client")) {
+            assertNotNull(manager.getDependency(loader.loadClass(name)), name + " was skipped after the failure");
+        }
+        manager.shutdown();
+    }
+
+    @Test
+    void closesThroughIndexedCloseMethods() throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Resource", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                //The private method keeps the factory from closing the class
+                @AutoLoadable
+                public class Resource implements AutoCloseable {
+                    public int released;
+                    public int closed;
+
+                    @DependencyConstructor
+                    public Resource() {
+                    }
+
+                    @AutoClose
+                    private void release() {
+                        released++;
+                    }
+
+                    @Override
+                    public void close() {
+                        closed++;
+                    }
+                }
+                """));
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+        Object resource = manager.getDependency(loader.loadClass("test.Resource"));
+        manager.shutdown();
+
+        assertEquals(1, resource.getClass().getField("released").getInt(resource));
+        assertEquals(0, resource.getClass().getField("closed").getInt(resource), "AutoCloseable is only used without close methods");
+    }
+
+    private static final Map<String, String> WARMUP = Map.of("test.Warm", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Warm {
+                public volatile int calls;
+                public volatile String thread;
+
+                @DependencyConstructor
+                public Warm() {
+                }
+
+                @Warmup(iterations = 3)
+                void warmup() {
+                    calls++;
+                    thread = Thread.currentThread().getName();
+                }
+            }
+            """, "test.Private", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Private {
+                public volatile int calls;
+
+                @DependencyConstructor
+                public Private() {
+                }
+
+                @Warmup(iterations = 2)
+                private void warmup() {
+                    calls++;
+                }
+            }
+            """);
+
+    @Test
+    void warmsUpOnTheExecutorFromIndex() throws Exception {
+        URLClassLoader loader = TestSources.compile(WARMUP);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        assertWarmedUp(manager, loader, () -> manager.init(loader));
+    }
+
+    @Test
+    void warmsUpOnTheExecutorFromPlan() throws Exception {
+        URLClassLoader loader = TestSources.compile(WARMUP, "-Adpl.plan=test.TestPlan");
+        DependencyPlan plan = (DependencyPlan) loader.loadClass("test.TestPlan").getConstructor().newInstance();
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        assertWarmedUp(manager, loader, () -> manager.init(plan));
+    }
+
+    private static void assertWarmedUp(DependencyManager manager, ClassLoader loader, Runnable init) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> new Thread(runnable, "test-executor"));
+        manager.setExecutorService(executor);
+        init.run();
+
+        Class<?> warm = loader.loadClass("test.Warm");
+        Class<?> privateWarm = loader.loadClass("test.Private");
+        assertEquals(Set.of(warm, privateWarm), manager.getReadiness().get(10, TimeUnit.SECONDS));
+        Object warmed = manager.getDependency(warm);
+        Object privateWarmed = manager.getDependency(privateWarm);
+        assertEquals(3, warm.getField("calls").getInt(warmed));
+        assertEquals("test-executor", warm.getField("thread").get(warmed));
+        assertEquals(2, privateWarm.getField("calls").getInt(privateWarmed));
+        manager.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    void failedInitCompletesReadiness() throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Service", SERVICE));
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        CompletableFuture<?> service = manager.awaitDependency(loader.loadClass("test.Service"));
+        manager.addStartupListener(new StartupListener() {
+            @Override
+            public void onPhaseStarted(StartupPhase phase) {
+                if (phase == StartupPhase.CREATE_INSTANCES) {
+                    throw new IllegalStateException("Listener failed");
+                }
+            }
+        });
+
+        assertThrows(IllegalStateException.class, () -> manager.init(loader));
+        ExecutionException readiness = assertThrows(ExecutionException.class, () -> manager.getReadiness().get(1, TimeUnit.SECONDS));
+        assertEquals("Listener failed", readiness.getCause().getMessage());
+        assertThrows(ExecutionException.class, () -> service.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void initAsyncStartsInitOnce() throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Counted", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Counted {
+                    public static volatile int runs;
+                    public static volatile Thread thread;
+
+                    @DependencyConstructor
+                    public Counted() {
+                    }
+
+                    @AutoRun
+                    void run() throws InterruptedException {
+                        runs++;
+                        thread = Thread.currentThread();
+                        //Keeps init running while it is started again
+                        Thread.sleep(100);
+                    }
+                }
+                """));
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        CompletableFuture<Void> first = manager.initAsync(loader);
+        CompletableFuture<Void> second = manager.initAsync(loader);
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        manager.init(loader);
+
+        Class<?> counted = loader.loadClass("test.Counted");
+        assertEquals(1, counted.getField("runs").getInt(null));
+        Thread thread = (Thread) counted.getField("thread").get(null);
+        assertEquals("DependencyManager-init", thread.getName());
+        assertTrue(thread.isDaemon(), "Init thread keeps the JVM alive");
+        manager.shutdown();
+    }
+
+    @Test
+    void registryDoesNotHoldManager() throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Service", SERVICE));
+        WeakReference<DependencyManager> reference = lookUpAndForget(loader);
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get(), "Manager is still reachable through the looked up types");
+    }
+
+    private static WeakReference<DependencyManager> lookUpAndForget(ClassLoader loader) {
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+        manager.addDependency(new ManagerHolder(manager));
+        //Caches a dependency referencing the manager and a type without a dependency on the types themselves
+        assertNotNull(manager.getDependency(ManagerHolder.class));
+        assertNull(manager.getDependency(Runnable.class));
+        return new WeakReference<>(manager);
+    }
+
+    private record ManagerHolder(DependencyManager manager) {
+    }
+
+    @Test
+    void addingAfterInitUpdatesCachedLookups() throws Exception {
+        URLClassLoader loader = TestSources.compile(Map.of("test.Service", SERVICE));
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+        Class<?> service = loader.loadClass("test.Service");
+        Object created = manager.getDependency(service);
+        assertNotNull(created);
+        assertNull(manager.getDependency(Runnable.class));
+
+        FirstTask first = new FirstTask();
+        manager.addDependency(first);
+        assertSame(first, manager.getDependency(Runnable.class), "Cached miss of a supertype was kept");
+        assertSame(first, manager.getDependency(FirstTask.class));
+        assertSame(created, manager.getDependency(service));
+
+        manager.addDependency(new SecondTask());
+        assertNull(manager.getDependency(Runnable.class), "Cached supertype stayed bound to one of two classes");
+        assertSame(first, manager.getDependency(FirstTask.class));
+        manager.shutdown();
+    }
+
+    private static final class FirstTask implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    private static final class SecondTask implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package me.alex.dpl;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FetchTest {
+    //More classes than batches, so every batch fetches a few of them
+    private static final int CLASSES = 4 * Runtime.getRuntime().availableProcessors() + 2;
+    private static final Set<String> BROKEN = Set.of("test.Service0", "test.Service" + (CLASSES - 1));
+
+    @Test
+    void brokenClassDoesNotStopItsBatch() throws Exception {
+        URLClassLoader loader = TestSources.compile(createSources());
+        BrokenLoader broken = new BrokenLoader(loader);
+        List<LogRecord> errors = new CopyOnWriteArrayList<>();
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        withErrors(errors, () -> manager.init(broken));
+
+        assertFetchedAllButBroken(manager, loader, broken, errors);
+        manager.shutdown();
+    }
+
+    @Test
+    void brokenClassDoesNotStopItsBatchWithAPlan() throws Exception {
+        URLClassLoader loader = TestSources.compile(createSources());
+        Path file = Files.createTempDirectory("dpl-plan").resolve("plan.bin");
+        DependencyManager first = DependencyManager.createDependencyManager();
+        first.setPlanCache(file);
+        first.init(loader);
+        first.shutdown();
+        assertTrue(Files.exists(file));
+
+        BrokenLoader broken = new BrokenLoader(loader);
+        List<LogRecord> errors = new CopyOnWriteArrayList<>();
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.setPlanCache(file);
+        withErrors(errors, () -> manager.init(broken));
+
+        assertFetchedAllButBroken(manager, loader, broken, errors);
+        manager.shutdown();
+    }
+
+    private static void assertFetchedAllButBroken(DependencyManager manager, ClassLoader loader, BrokenLoader broken, List<LogRecord> errors) throws Exception {
+        for (int i = 0; i < CLASSES; i++) {
+            String name = "test.Service" + i;
+            Object instance = manager.getDependency(loader.loadClass(name));
+            if (BROKEN.contains(name)) {
+                assertNull(instance, name + " was created");
+            } else {
+                assertNotNull(instance, name + " was not created");
+            }
+        }
+
+        assertEquals(BROKEN.size(), errors.size(), "Unexpected errors: " + errors.stream().map(LogRecord::getMessage).toList());
+        for (LogRecord error : errors) {
+            String name = error.getMessage().substring("Failed to fetch class ".length(), error.getMessage().length() - 1);
+            assertTrue(BROKEN.contains(name), error.getMessage());
+            assertSame(broken.thrown.get(name), error.getThrown(), "The exception of " + name + " was not logged");
+        }
+    }
+
+    private static Map<String, String> createSources() {
+        Map<String, String> sources = new HashMap<>();
+        for (int i = 0; i < CLASSES; i++) {
+            sources.put("test.Service" + i, """
+                    package test;
+
+                    import me.alex.dpl.annotation.*;
+
+                    @AutoLoadable
+                    public class Service%1$d {
+                        @DependencyConstructor
+                        public Service%1$d() {
+                        }
+                    }
+                    """.formatted(i));
+        }
+        return sources;
+    }
+
+    private static void withErrors(List<LogRecord> errors, Runnable action) {
+        Logger logger = Logger.getLogger(DependencyManager.class.getSimpleName());
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel() == Level.SEVERE && record.getMessage().startsWith("Failed to fetch")) {
+                    errors.add(record);
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.addHandler(handler);
+        try {
+            action.run();
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
+    /**
+     * Fails to load the broken classes with an unchecked exception, like a class with a broken static initializer.
+     */
+    private static final class BrokenLoader extends ClassLoader {
+        private final Map<String, RuntimeException> thrown = new HashMap<>();
+
+        private BrokenLoader(ClassLoader parent) {
+            super(parent);
+            for (String name : BROKEN) {
+                thrown.put(name, new IllegalStateException("Broken " + name));
+            }
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            RuntimeException e = thrown.get(name);
+            if (e != null) {
+                throw e;
+            }
+            return super.loadClass(name, resolve);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package me.alex.dpl;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyTest {
+    private static final Map<String, String> SOURCES = Map.of("test.Counter", """
+            package test;
+
+            import java.util.Map;
+            import java.util.concurrent.ConcurrentHashMap;
+            import java.util.concurrent.atomic.AtomicInteger;
+
+            public class Counter {
+                public static final Map<String, AtomicInteger> CREATED = new ConcurrentHashMap<>();
+
+                static void created(String name) {
+                    CREATED.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+                }
+
+                public static int get(String name) {
+                    AtomicInteger count = CREATED.get(name);
+                    return count == null ? 0 : count.get();
+                }
+            }
+            """, "test.Service", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Service {
+                @DependencyConstructor
+                public Service() {
+                    Counter.created("Service");
+                }
+            }
+            """, "test.Admin", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @Lazy
+            @AutoLoadable
+            public class Admin {
+                public final Service service;
+                public volatile boolean started;
+
+                @DependencyConstructor
+                public Admin(Service service) throws InterruptedException {
+                    //Slow enough for concurrent first requests to overlap
+                    Thread.sleep(100);
+                    this.service = service;
+                    Counter.created("Admin");
+                }
+
+                @AutoRun
+                public void start() {
+                    started = true;
+                }
+            }
+            """, "test.Report", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @Lazy
+            @AutoLoadable
+            public class Report {
+                @DependencyConstructor
+                public Report() {
+                    Counter.created("Report");
+                }
+            }
+            """, "test.Dashboard", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Dashboard {
+                public final Report report;
+
+                @DependencyConstructor
+                public Dashboard(Report report) {
+                    this.report = report;
+                    Counter.created("Dashboard");
+                }
+            }
+            """);
+
+    @Test
+    void lazyDependencyIsCreatedOnFirstRequest() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+        assertEquals(0, count(loader, "Admin"), "A lazy class was created by init");
+        assertEquals(1, count(loader, "Service"));
+
+        Class<?> admin = loader.loadClass("test.Admin");
+        Object first = manager.getDependency(admin);
+        assertNotNull(first);
+        assertSame(first, manager.getDependency(admin));
+        assertEquals(1, count(loader, "Admin"));
+        assertTrue(admin.getField("started").getBoolean(first), "AutoRun methods did not run before the first request returned");
+        assertSame(manager.getDependency(loader.loadClass("test.Service")), admin.getField("service").get(first));
+        manager.shutdown();
+    }
+
+    @Test
+    void lazyDependencyIsCreatedByTheFirstDependencyNeedingIt() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+
+        Object dashboard = manager.getDependency(loader.loadClass("test.Dashboard"));
+        assertNotNull(dashboard);
+        assertEquals(1, count(loader, "Report"));
+        assertSame(manager.getDependency(loader.loadClass("test.Report")), dashboard.getClass().getField("report").get(dashboard));
+        manager.shutdown();
+    }
+
+    @Test
+    void concurrentFirstRequestsCreateOneInstance() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+        Class<?> admin = loader.loadClass("test.Admin");
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> requests = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            requests.add(executor.submit(() -> {
+                start.await();
+                return manager.getDependency(admin);
+            }));
+        }
+        start.countDown();
+        Object first = requests.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<Object> request : requests) {
+            assertSame(first, request.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, count(loader, "Admin"));
+        executor.shutdown();
+        manager.shutdown();
+    }
+
+    @Test
+    void lazyInitCreatesNothingUntilRequested() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.setLazyInit(true);
+        manager.init(loader);
+        assertEquals(0, count(loader, "Service"));
+        assertEquals(0, count(loader, "Dashboard"));
+
+        assertNotNull(manager.getDependency(loader.loadClass("test.Dashboard")));
+        assertEquals(1, count(loader, "Dashboard"));
+        assertEquals(1, count(loader, "Report"));
+        assertEquals(0, count(loader, "Service"), "A dependency nobody needed was created");
+        manager.shutdown();
+    }
+
+    private static int count(ClassLoader loader, String name) throws Exception {
+        return (int) loader.loadClass("test.Counter").getMethod("get", String.class).invoke(null, name);
+    }
+}
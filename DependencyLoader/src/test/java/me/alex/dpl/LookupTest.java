@@ -0,0 +1,152 @@
+package me.alex.dpl;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLClassLoader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LookupTest {
+    private static final Map<String, String> SOURCES = Map.of("test.Store", """
+            package test;
+
+            public interface Store {
+            }
+            """, "test.Cache", """
+            package test;
+
+            public interface Cache {
+            }
+            """, "test.MemoryStore", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @Named("memory")
+            @AutoLoadable
+            public class MemoryStore implements Store, Cache {
+                @DependencyConstructor
+                public MemoryStore() {
+                }
+            }
+            """, "test.DiskStore", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @Named("disk")
+            @AutoLoadable
+            public class DiskStore implements Store {
+                @DependencyConstructor
+                public DiskStore() {
+                }
+            }
+            """, "test.Base", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Base {
+                @DependencyConstructor
+                public Base() {
+                }
+            }
+            """, "test.Special", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Special extends Base {
+                @DependencyConstructor
+                public Special() {
+                }
+            }
+            """, "test.Client", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Client {
+                public final Store store;
+                public final Cache cache;
+                @Inject
+                @Named("memory")
+                public Store memory;
+
+                @DependencyConstructor
+                public Client(@Named("disk") Store store, Cache cache) {
+                    this.store = store;
+                    this.cache = cache;
+                }
+            }
+            """);
+
+    @Test
+    void resolvesSupertypesImplementedOnce() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+
+        Object memory = manager.getDependency(loader.loadClass("test.MemoryStore"));
+        assertNotNull(memory);
+        assertSame(memory, manager.getDependency(loader.loadClass("test.Cache")));
+        //The class itself wins over the classes extending it
+        Object base = manager.getDependency(loader.loadClass("test.Base"));
+        assertNotNull(base);
+        assertEquals("test.Base", base.getClass().getName());
+        manager.shutdown();
+    }
+
+    @Test
+    void ambiguousSupertypesNeedAName() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+        Class<?> store = loader.loadClass("test.Store");
+
+        assertNull(manager.getDependency(store), "A supertype implemented twice was resolved");
+        assertSame(manager.getDependency(loader.loadClass("test.MemoryStore")), manager.getDependency(store, "memory"));
+        assertSame(manager.getDependency(loader.loadClass("test.DiskStore")), manager.getDependency(store, "disk"));
+        assertNull(manager.getDependency(store, "missing"));
+        manager.shutdown();
+    }
+
+    @Test
+    void injectsByNameAndSupertype() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+        Class<?> client = loader.loadClass("test.Client");
+        Object instance = manager.getDependency(client);
+        assertNotNull(instance);
+
+        Object memory = manager.getDependency(loader.loadClass("test.MemoryStore"));
+        assertSame(manager.getDependency(loader.loadClass("test.DiskStore")), client.getField("store").get(instance));
+        assertSame(memory, client.getField("cache").get(instance));
+        assertSame(memory, client.getField("memory").get(instance));
+        manager.shutdown();
+    }
+
+    @Test
+    void addedObjectsAreBoundToTheirSupertypes() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+
+        Settings settings = new Settings();
+        manager.addDependency(settings);
+        assertSame(settings, manager.getDependency(Config.class));
+        assertSame(settings, manager.getDependency(Settings.class));
+        manager.shutdown();
+    }
+
+    private interface Config {
+    }
+
+    private static final class Settings implements Config {
+    }
+}
@@ -0,0 +1,152 @@
+package me.alex.dpl;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelInitTest {
+    //A diamond: Left and Right need Root, Top needs both. Left and Right wait for each other when asked to.
+    private static final Map<String, String> DIAMOND = Map.of("test.Trace", """
+            package test;
+
+            import java.util.List;
+            import java.util.concurrent.CopyOnWriteArrayList;
+            import java.util.concurrent.CyclicBarrier;
+            import java.util.concurrent.TimeUnit;
+
+            public class Trace {
+                public static final List<String> CREATED = new CopyOnWriteArrayList<>();
+                public static final List<Thread> THREADS = new CopyOnWriteArrayList<>();
+                public static volatile CyclicBarrier barrier;
+
+                static void created(String name) {
+                    CyclicBarrier barrier = Trace.barrier;
+                    if (barrier != null && !name.equals("Root") && !name.equals("Top")) {
+                        try {
+                            barrier.await(5, TimeUnit.SECONDS);
+                        } catch (Exception e) {
+                            throw new IllegalStateException(name + " was not created at the same time as its sibling", e);
+                        }
+                    }
+                    CREATED.add(name);
+                    THREADS.add(Thread.currentThread());
+                }
+            }
+            """, "test.Root", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Root {
+                @DependencyConstructor
+                public Root() {
+                    Trace.created("Root");
+                }
+            }
+            """, "test.Left", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Left {
+                @DependencyConstructor
+                public Left(Root root) {
+                    Trace.created("Left");
+                }
+            }
+            """, "test.Right", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Right {
+                @DependencyConstructor
+                public Right(Root root) {
+                    Trace.created("Right");
+                }
+            }
+            """, "test.Top", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Top {
+                @Inject
+                Root root;
+
+                @DependencyConstructor
+                public Top(Left left, Right right) {
+                    Trace.created("Top");
+                }
+            }
+            """);
+
+    @Test
+    void sequentialInitCreatesInLoadOrderOnTheCallingThread() throws Exception {
+        URLClassLoader loader = TestSources.compile(DIAMOND);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.setParallelInit(false);
+        manager.init(loader);
+
+        List<String> created = getTrace(loader, "CREATED");
+        assertEquals(4, created.size(), created.toString());
+        assertOrdered(created);
+        for (Object thread : getTrace(loader, "THREADS")) {
+            assertSame(Thread.currentThread(), thread);
+        }
+        manager.shutdown();
+    }
+
+    @Test
+    void parallelInitCreatesIndependentDependenciesAtTheSameTime() throws Exception {
+        URLClassLoader loader = TestSources.compile(DIAMOND);
+        //Left and Right only get past the barrier if both constructors run at the same time
+        loader.loadClass("test.Trace").getField("barrier").set(null, new CyclicBarrier(2));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.setExecutorService(executor);
+        manager.setParallelInit(true);
+        manager.init(loader);
+
+        List<String> created = getTrace(loader, "CREATED");
+        assertEquals(4, created.size(), created.toString());
+        assertOrdered(created);
+        Object top = manager.getDependency(loader.loadClass("test.Top"));
+        assertNotNull(top);
+        Field root = top.getClass().getDeclaredField("root");
+        root.setAccessible(true);
+        assertSame(manager.getDependency(loader.loadClass("test.Root")), root.get(top));
+        manager.shutdown();
+        executor.shutdown();
+    }
+
+    //Every dependency is created after the dependencies of its constructor
+    private static void assertOrdered(List<String> created) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < created.size(); i++) {
+            positions.put(created.get(i), i);
+        }
+        assertTrue(positions.get("Root") < positions.get("Left"), created.toString());
+        assertTrue(positions.get("Root") < positions.get("Right"), created.toString());
+        assertTrue(positions.get("Left") < positions.get("Top"), created.toString());
+        assertTrue(positions.get("Right") < positions.get("Top"), created.toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> getTrace(ClassLoader loader, String name) throws Exception {
+        return (List<T>) loader.loadClass("test.Trace").getField(name).get(null);
+    }
+}
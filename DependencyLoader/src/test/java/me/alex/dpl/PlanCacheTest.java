@@ -0,0 +1,172 @@
+package me.alex.dpl;
+
+import me.alex.dpl.index.DependencyIndex;
+import me.alex.dpl.index.IndexEntry;
+import me.alex.dpl.pojo.Dependency;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanCacheTest {
+    private static final Map<String, String> SOURCES = Map.of("test.Service", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Service {
+                @DependencyConstructor
+                public Service() {
+                }
+            }
+            """, "test.Client", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Client {
+                @Inject
+                Service service;
+
+                @DependencyConstructor
+                public Client(Service service) {
+                }
+
+                @AutoRun
+                void start() {
+                }
+            }
+            """, "test.Reflective", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            //The private field keeps the factory from setting every member
+            @AutoLoadable
+            public class Reflective {
+                @Inject
+                private Service service;
+
+                @DependencyConstructor
+                public Reflective() {
+                }
+            }
+            """);
+
+    @Test
+    void missSavesThePlan() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        Path file = Files.createTempDirectory("dpl-plan").resolve("plan.bin");
+        assertNull(new PlanCache(file).load(getIndexUrls(loader)));
+
+        start(loader, file);
+        assertTrue(Files.exists(file), "The plan was not saved");
+    }
+
+    @Test
+    void hitReturnsTheSavedPlan() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        Path file = Files.createTempDirectory("dpl-plan").resolve("plan.bin");
+        start(loader, file);
+
+        PlanCache cache = new PlanCache(file);
+        DependencyIndex cached = cache.load(getIndexUrls(loader));
+        assertNotNull(cached, "The saved plan was not used");
+        DependencyIndex index = DependencyManager.createDependencyManager().readIndex(loader);
+        assertEquals(index.getEntries().stream().map(IndexEntry::getClassName).toList(),
+                cached.getEntries().stream().map(IndexEntry::getClassName).toList());
+        assertTrue(cache.hasFactory("test.Service"));
+        assertTrue(cache.getCost("test.Client") >= 0, "The cost of a class was not saved");
+        assertEquals(-1, cache.getCost("test.Missing"));
+
+        //Saving a hit keeps the plan valid for the next start
+        start(loader, file);
+        assertNotNull(new PlanCache(file).load(getIndexUrls(loader)));
+    }
+
+    @Test
+    void changedIndexInvalidatesThePlan() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        Path file = Files.createTempDirectory("dpl-plan").resolve("plan.bin");
+        start(loader, file);
+
+        List<URL> urls = getIndexUrls(loader);
+        touch(Path.of(urls.get(0).toURI()));
+        assertNull(new PlanCache(file).load(urls));
+    }
+
+    @Test
+    void changedClassInvalidatesThePlan() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        Path file = Files.createTempDirectory("dpl-plan").resolve("plan.bin");
+        start(loader, file);
+
+        //The processor leaves an unchanged index untouched, so only the class file changes
+        touch(Path.of(loader.getResource("test/Client.class").toURI()));
+        assertNull(new PlanCache(file).load(getIndexUrls(loader)));
+
+        start(loader, file);
+        assertNotNull(new PlanCache(file).load(getIndexUrls(loader)), "The plan was not saved again after a miss");
+    }
+
+    @Test
+    void brokenPlanIsIgnored() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        Path file = Files.createTempDirectory("dpl-plan").resolve("plan.bin");
+        start(loader, file);
+
+        byte[] plan = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(plan, plan.length / 2));
+        assertNull(new PlanCache(file).load(getIndexUrls(loader)));
+
+        DependencyManager manager = start(loader, file);
+        assertNotNull(manager.getDependency(loader.loadClass("test.Client")));
+    }
+
+    @Test
+    void completeFactoriesSkipMemberLookups() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        for (Dependency dependency : manager.fetchIndexedClasses(manager.readIndex(loader), loader)) {
+            boolean reflective = dependency.getClazz().getName().equals("test.Reflective");
+            assertEquals(reflective, dependency.getConstructor() != null, "Members of " + dependency.getClazz().getName());
+            assertNotNull(dependency.getFactory());
+        }
+
+        manager = start(loader, Files.createTempDirectory("dpl-plan").resolve("plan.bin"));
+        Object service = manager.getDependency(loader.loadClass("test.Service"));
+        Object client = manager.getDependency(loader.loadClass("test.Client"));
+        Field field = client.getClass().getDeclaredField("service");
+        field.setAccessible(true);
+        assertSame(service, field.get(client));
+    }
+
+    private static DependencyManager start(ClassLoader loader, Path file) {
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.setPlanCache(file);
+        manager.init(loader);
+        manager.shutdown();
+        return manager;
+    }
+
+    private static List<URL> getIndexUrls(ClassLoader loader) throws Exception {
+        return Collections.list(loader.getResources(Constants.INDEX_FILE));
+    }
+
+    private static void touch(Path path) throws Exception {
+        FileTime modified = Files.getLastModifiedTime(path);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(modified.toMillis() + 10_000));
+    }
+}
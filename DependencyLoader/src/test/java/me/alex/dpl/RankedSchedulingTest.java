@@ -0,0 +1,123 @@
+package me.alex.dpl;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankedSchedulingTest {
+    //A cheap chain of three and a single slow class, created on one thread so the order is the order of the queue
+    private static final Map<String, String> SOURCES = createSources();
+
+    @Test
+    void longestChainStartsFirst() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.setExecutorService(executor);
+        manager.setParallelInit(true);
+        manager.init(loader);
+
+        //Without measured costs every class costs the same, so the chain goes first until its rest is as short as the slow class
+        List<String> created = getCreated(loader);
+        assertEquals(4, created.size(), created.toString());
+        assertEquals(List.of("Chain1", "Chain2"), created.subList(0, 2));
+        manager.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    void measuredCostsOutrankLongerChains() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        Path file = Files.createTempDirectory("dpl-plan").resolve("plan.bin");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        DependencyManager first = DependencyManager.createDependencyManager();
+        first.setExecutorService(executor);
+        first.setParallelInit(true);
+        first.setPlanCache(file);
+        first.init(loader);
+        first.shutdown();
+        assertEquals("Chain1", getCreated(loader).get(0));
+        getCreated(loader).clear();
+
+        //The second start knows the slow class takes longer than the whole chain
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.setExecutorService(executor);
+        manager.setParallelInit(true);
+        manager.setPlanCache(file);
+        manager.init(loader);
+        assertEquals(List.of("Slow", "Chain1", "Chain2", "Chain3"), getCreated(loader));
+        manager.shutdown();
+        executor.shutdown();
+    }
+
+    private static Map<String, String> createSources() {
+        Map<String, String> sources = new HashMap<>();
+        sources.put("test.Trace", """
+                package test;
+
+                import java.util.List;
+                import java.util.concurrent.CopyOnWriteArrayList;
+
+                public class Trace {
+                    public static final List<String> CREATED = new CopyOnWriteArrayList<>();
+                }
+                """);
+        sources.put("test.Slow", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Slow {
+                    @DependencyConstructor
+                    public Slow() throws InterruptedException {
+                        Thread.sleep(100);
+                        Trace.CREATED.add("Slow");
+                    }
+                }
+                """);
+        sources.put("test.Chain1", """
+                package test;
+
+                import me.alex.dpl.annotation.*;
+
+                @AutoLoadable
+                public class Chain1 {
+                    @DependencyConstructor
+                    public Chain1() {
+                        Trace.CREATED.add("Chain1");
+                    }
+                }
+                """);
+        for (int i = 2; i <= 3; i++) {
+            sources.put("test.Chain" + i, """
+                    package test;
+
+                    import me.alex.dpl.annotation.*;
+
+                    @AutoLoadable
+                    public class Chain%1$d {
+                        @DependencyConstructor
+                        public Chain%1$d(Chain%2$d previous) {
+                            Trace.CREATED.add("Chain%1$d");
+                        }
+                    }
+                    """.formatted(i, i - 1));
+        }
+        return sources;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> getCreated(ClassLoader loader) throws Exception {
+        return (List<String>) loader.loadClass("test.Trace").getField("CREATED").get(null);
+    }
+}
@@ -0,0 +1,133 @@
+package me.alex.dpl;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLClassLoader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScopeTest {
+    private static final Map<String, String> SOURCES = Map.of("test.Service", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Service implements AutoCloseable {
+                public int closed;
+
+                @DependencyConstructor
+                public Service() {
+                }
+
+                @Override
+                public void close() {
+                    closed++;
+                }
+            }
+            """, "test.Handler", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @Scoped
+            @AutoLoadable
+            public class Handler implements AutoCloseable {
+                public final Service service;
+                @Inject
+                public Session session;
+                public int runs;
+                public int closed;
+
+                @DependencyConstructor
+                public Handler(Service service) {
+                    this.service = service;
+                }
+
+                @AutoRun
+                public void start() {
+                    runs++;
+                }
+
+                @Override
+                public void close() {
+                    closed++;
+                }
+            }
+            """, "test.Session", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @Scoped
+            @AutoLoadable
+            public class Session {
+                @DependencyConstructor
+                public Session() {
+                }
+            }
+            """);
+
+    private record Tenant(String name) {
+    }
+
+    @Test
+    void createScopeNeedsInit() throws Exception {
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        assertThrows(IllegalStateException.class, manager::createScope);
+    }
+
+    @Test
+    void scopesShareOnlyUnscopedDependencies() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        Class<?> service = loader.loadClass("test.Service");
+        Class<?> handler = loader.loadClass("test.Handler");
+        Class<?> session = loader.loadClass("test.Session");
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+        assertNull(manager.getDependency(handler), "Scoped classes are not created by init");
+
+        Tenant acme = new Tenant("acme");
+        DependencyScope first = manager.createScope(acme);
+        DependencyScope second = manager.createScope(new Tenant("other"));
+        Object shared = manager.getDependency(service);
+        Object firstHandler = first.getDependency(handler);
+        Object secondHandler = second.getDependency(handler);
+
+        assertSame(acme, first.getDependency(Tenant.class));
+        assertSame(manager, first.getParent());
+        assertSame(shared, first.getDependency(service));
+        assertSame(shared, second.getDependency(service));
+        assertNotNull(firstHandler);
+        assertNotSame(firstHandler, secondHandler);
+        assertSame(firstHandler, first.getDependency(handler), "A scope creates its classes once");
+        assertSame(shared, handler.getField("service").get(firstHandler));
+        assertSame(first.getDependency(session), handler.getField("session").get(firstHandler));
+        assertNotSame(first.getDependency(session), second.getDependency(session));
+        assertEquals(1, handler.getField("runs").getInt(firstHandler));
+        assertNull(manager.getDependency(session));
+        manager.shutdown();
+    }
+
+    @Test
+    void closeOnlyClosesScopedDependencies() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        Class<?> service = loader.loadClass("test.Service");
+        Class<?> handler = loader.loadClass("test.Handler");
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        manager.init(loader);
+        Object shared = manager.getDependency(service);
+
+        Object scoped;
+        try (DependencyScope scope = manager.createScope()) {
+            scoped = scope.getDependency(handler);
+        }
+        assertEquals(1, handler.getField("closed").getInt(scoped));
+        assertEquals(0, service.getField("closed").getInt(shared), "A scope closed a shared dependency");
+
+        manager.shutdown();
+        assertEquals(1, service.getField("closed").getInt(shared));
+        assertEquals(1, handler.getField("closed").getInt(scoped), "Shutdown closed a scoped dependency again");
+    }
+}
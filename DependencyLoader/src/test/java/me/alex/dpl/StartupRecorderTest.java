@@ -0,0 +1,133 @@
+package me.alex.dpl;
+
+import me.alex.dpl.instrumentation.BeanStep;
+import me.alex.dpl.instrumentation.StartupPhase;
+import me.alex.dpl.instrumentation.StartupRecorder;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupRecorderTest {
+    private static final Map<String, String> SOURCES = Map.of("test.Database", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Database {
+                @DependencyConstructor
+                public Database() throws InterruptedException {
+                    Thread.sleep(150);
+                }
+            }
+            """, "test.Repository", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Repository {
+                @DependencyConstructor
+                public Repository(Database database) {
+                }
+
+                @AutoRun
+                public void start() throws InterruptedException {
+                    Thread.sleep(40);
+                }
+            }
+            """, "test.Api", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Api {
+                @DependencyConstructor
+                public Api(Repository repository) {
+                }
+            }
+            """, "test.Metrics", """
+            package test;
+
+            import me.alex.dpl.annotation.*;
+
+            @AutoLoadable
+            public class Metrics {
+                @DependencyConstructor
+                public Metrics() throws InterruptedException {
+                    Thread.sleep(50);
+                }
+            }
+            """);
+
+    @Test
+    void criticalPathFollowsTheSlowestChain() {
+        //Top needs Left and Right, Right is slower, so the path goes through it even though Left was reported first
+        StartupRecorder recorder = new StartupRecorder();
+        recorder.onDependencies("Top", List.of("Left", "Right"));
+        recorder.onDependencies("Left", List.of("Root"));
+        recorder.onDependencies("Right", List.of("Root", "java.lang.String"));
+        recorder.onDependencies("Root", List.of());
+        recorder.onDependencies("Free", List.of());
+        Thread thread = Thread.currentThread();
+        recorder.onBeanStep("Root", BeanStep.CREATE_INSTANCE, null, 0, 10, thread);
+        recorder.onBeanStep("Left", BeanStep.CREATE_INSTANCE, null, 10, 20, thread);
+        recorder.onBeanStep("Right", BeanStep.CREATE_INSTANCE, null, 10, 30, thread);
+        recorder.onBeanStep("Right", BeanStep.RUN_METHOD, "start", 40, 5, thread);
+        recorder.onBeanStep("Top", BeanStep.INJECT_FIELDS, null, 45, 1, thread);
+        recorder.onBeanStep("Free", BeanStep.CREATE_INSTANCE, null, 0, 40, thread);
+        //Loading a class is not part of the graph, it happens before any instance is created
+        recorder.onBeanStep("Free", BeanStep.LOAD_CLASS, null, 0, 1000, thread);
+
+        assertEquals(List.of("Root", "Right", "Top"), recorder.getCriticalPath());
+        assertEquals(List.of("Free", "Right", "Left", "Root", "Top"), List.copyOf(recorder.getBeanDurations().keySet()));
+        assertEquals(35L, (long) recorder.getBeanDurations().get("Right"));
+    }
+
+    @Test
+    void recordsTheTimingsOfInit() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        StartupRecorder recorder = new StartupRecorder();
+        manager.addStartupListener(recorder);
+        manager.init(loader);
+
+        assertTrue(recorder.getInitDuration() >= 190_000_000L, "Init took " + recorder.getInitDuration() + "ns");
+        Map<StartupPhase, Long> phases = recorder.getPhaseDurations();
+        assertTrue(phases.containsKey(StartupPhase.READ_INDEX));
+        assertTrue(phases.get(StartupPhase.CREATE_INSTANCES) >= 150_000_000L);
+        assertTrue(phases.get(StartupPhase.RUN_METHODS) >= 40_000_000L);
+
+        assertEquals("test.Database", recorder.getBeanDurations().keySet().iterator().next());
+        assertEquals(List.of("test.Database", "test.Repository", "test.Api"), recorder.getCriticalPath());
+        manager.shutdown();
+    }
+
+    @Test
+    void writesTheTraceEventFormat() throws Exception {
+        URLClassLoader loader = TestSources.compile(SOURCES);
+        DependencyManager manager = DependencyManager.createDependencyManager();
+        StartupRecorder recorder = new StartupRecorder();
+        manager.addStartupListener(recorder);
+        manager.init(loader);
+
+        StringWriter writer = new StringWriter();
+        recorder.writeJson(writer);
+        String json = writer.toString();
+        assertTrue(json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["), json);
+        assertTrue(json.contains("{\"name\":\"CREATE_INSTANCES\",\"cat\":\"phase\",\"ph\":\"X\",\"pid\":1,\"tid\":0,"), json);
+        assertTrue(json.contains("{\"name\":\"Repository#start\",\"cat\":\"RUN_METHOD\",\"ph\":\"X\""), json);
+        assertTrue(json.contains("\"args\":{\"class\":\"test.Repository\",\"method\":\"start\"}"), json);
+        assertTrue(json.contains("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,\"args\":{\"name\":\"init phases\"}}"), json);
+        assertTrue(json.contains("\"criticalPath\":[\"test.Database\",\"test.Repository\",\"test.Api\"]"), json);
+        assertTrue(json.contains("\"beanDurations\":{\n\"test.Database\":"), json);
+        assertTrue(json.endsWith("}}\n"), json);
+        manager.shutdown();
+    }
+}
@@ -0,0 +1,70 @@
+package me.alex.dpl;
+
+import me.alex.dpl.annotationprocessor.Processor;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles test dependencies with the annotation processor, so every test has its own dependency index, factories and
+ * plan instead of sharing the ones of the test classpath.
+ */
+final class TestSources {
+    private TestSources() {
+    }
+
+    /**
+     * Compiles the sources into a new temp directory and returns a class loader containing them.
+     *
+     * @param sources The sources by binary class name
+     * @param options Additional compiler options, like {@code -Adpl.plan=...}
+     * @return A class loader containing the compiled classes and their dependency index
+     * @throws IOException If the sources or classes can not be written
+     */
+    static URLClassLoader compile(Map<String, String> sources, String... options) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("The tests need a JDK to compile the test dependencies.");
+        }
+        Path directory = Files.createTempDirectory("dpl-test");
+        Path sourceDirectory = directory.resolve("sources");
+        Path classes = Files.createDirectories(directory.resolve("classes"));
+
+        List<Path> files = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            Path file = sourceDirectory.resolve(source.getKey().replace('.', '/') + ".java");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source.getValue(), StandardCharsets.UTF_8);
+            files.add(file);
+        }
+
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            List<String> arguments = new ArrayList<>(List.of("-d", classes.toString(), "-s", classes.toString(),
+                    "-classpath", System.getProperty("java.class.path"), "-implicit:none"));
+            arguments.addAll(List.of(options));
+            StringBuilder errors = new StringBuilder();
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostic -> {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    errors.append(diagnostic).append('\n');
+                }
+            }, arguments, null, fileManager.getJavaFileObjectsFromPaths(files));
+            task.setProcessors(List.of(new Processor()));
+
+            if (!task.call()) {
+                throw new IllegalStateException("Failed to compile the test dependencies:\n" + errors);
+            }
+        }
+        return new URLClassLoader(new URL[]{classes.toUri().toURL()}, TestSources.class.getClassLoader());
+    }
+}